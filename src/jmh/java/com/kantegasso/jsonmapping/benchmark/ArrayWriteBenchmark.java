@@ -0,0 +1,72 @@
+package com.kantegasso.jsonmapping.benchmark;
+
+import com.kantegasso.jsonmapping.JsonMapping;
+import io.vavr.control.Try;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Writes a list of records, as an export endpoint would. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayWriteBenchmark {
+
+  @Param({"USER", "API_TOKEN"})
+  Shape shape;
+
+  @Param({"1000"})
+  int size;
+
+  JsonMapping jsonMapping;
+  List<Object> objects;
+  Class<Object> elementType;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    jsonMapping = new JsonMapping(true);
+    objects = new ArrayList<>(size);
+    for (int index = 0; index < size; index++) {
+      objects.add(shape.create());
+    }
+    elementType = (Class<Object>) objects.get(0).getClass();
+  }
+
+  @Benchmark
+  public JSONArray objectAsJsonPerElement() {
+    JSONArray array = new JSONArray();
+    for (Object object : objects) {
+      array.put(jsonMapping.write.objectAsJson(object).get());
+    }
+    return array;
+  }
+
+  @Benchmark
+  public Try<JSONArray> listAsJsonArray() {
+    return jsonMapping.write.listAsJsonArray(objects, elementType);
+  }
+
+  @Benchmark
+  public String writeArray() {
+    StringWriter writer = new StringWriter();
+    jsonMapping.write.writeArray(objects.iterator(), writer).get();
+    return writer.toString();
+  }
+}
@@ -0,0 +1,47 @@
+package com.kantegasso.jsonmapping.benchmark;
+
+import com.kantegasso.jsonmapping.JsonMapping.JsonMapper;
+
+/** Synthetic chain of nested objects. */
+@JsonMapper
+public class DeepObject {
+  private String name;
+  private int level;
+  private DeepObject child;
+
+  public DeepObject() {}
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  public void setLevel(int level) {
+    this.level = level;
+  }
+
+  public DeepObject getChild() {
+    return child;
+  }
+
+  public void setChild(DeepObject child) {
+    this.child = child;
+  }
+
+  static DeepObject create(int depth) {
+    DeepObject deep = new DeepObject();
+    deep.setName("level " + depth);
+    deep.setLevel(depth);
+    if (depth > 1) {
+      deep.setChild(create(depth - 1));
+    }
+    return deep;
+  }
+}
@@ -0,0 +1,53 @@
+package com.kantegasso.jsonmapping.benchmark;
+
+import com.kantegasso.jsonmapping.JsonMapping;
+import com.kantegasso.jsonmapping.JsonMapping.AccessorStrategy;
+import com.kantegasso.jsonmapping.JsonMapping.Parser;
+import com.kantegasso.jsonmapping.stub.ApiTokenObject;
+import com.kantegasso.jsonmapping.stub.ApiTokenObjectStub;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Routing on one property of a token message: a full read of the object, against a lazy view that
+ * only decodes the property asked for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LazyViewBenchmark {
+
+  JsonMapping jsonMapping;
+  String json;
+
+  @Setup
+  public void setUp() {
+    jsonMapping = new JsonMapping(true, AccessorStrategy.REFLECTION, 0, Parser.STREAMING);
+    json =
+        "{\"alias\": \"deploy token\", \"validFor\": 86400000, \"createdAt\": 1700000000000,"
+            + " \"hashed\": \"6r2kc0r3dq1hb1t0t4rfw8rmoe5qvbo7ru3wbb3ui8ft5ahbkx\","
+            + " \"salt\": \"4f0b8c2e9a7d4c1f\", \"userKey\": \"8a80818c7f3c1e2a017f3c1e9b2b0000\"}";
+  }
+
+  @Benchmark
+  public String valueFromJson() {
+    return jsonMapping.read.valueFromJson(json, ApiTokenObjectStub.class).get().getUserKey();
+  }
+
+  @Benchmark
+  public String lazyView() {
+    return jsonMapping.read.lazyView(json, ApiTokenObject.class).get().getUserKey();
+  }
+}
@@ -0,0 +1,48 @@
+package com.kantegasso.jsonmapping.benchmark;
+
+import com.kantegasso.jsonmapping.JsonMapping;
+import io.vavr.control.Try;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * The first mapping of a type, which resolves its properties and their names. The cache is cleared
+ * before every call, so each call pays the per-type setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataBenchmark {
+
+  @Param({"USER", "API_TOKEN", "WIDE"})
+  Shape shape;
+
+  JsonMapping jsonMapping;
+  Object object;
+
+  @Setup
+  public void setUp() {
+    jsonMapping = new JsonMapping(true);
+    object = shape.create();
+  }
+
+  @Benchmark
+  public Try<JSONObject> firstObjectAsJson() {
+    JsonMapping.clearCachedTypes();
+    return jsonMapping.write.objectAsJson(object);
+  }
+}
@@ -0,0 +1,69 @@
+package com.kantegasso.jsonmapping.benchmark;
+
+import com.kantegasso.jsonmapping.JsonMapping;
+import io.vavr.control.Try;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Reads newline-delimited JSON sequentially and in parallel. Parallel scales with the cores. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NdjsonBenchmark {
+
+  @Param({"API_TOKEN", "SCIM_TENANT_CONFIG"})
+  Shape shape;
+
+  @Param({"10000"})
+  int lines;
+
+  JsonMapping jsonMapping;
+  byte[] ndjson;
+
+  @Setup
+  public void setUp() {
+    jsonMapping = new JsonMapping(true);
+    List<Object> objects = new ArrayList<>(lines);
+    for (int index = 0; index < lines; index++) {
+      objects.add(shape.create());
+    }
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    jsonMapping.write.ndjson(objects.stream(), stream).get();
+    ndjson = stream.toByteArray();
+  }
+
+  @Benchmark
+  public List<? extends Try<?>> sequential() {
+    return jsonMapping
+        .read
+        .ndjson(new ByteArrayInputStream(ndjson), shape.type)
+        .collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<? extends Try<?>> parallel() {
+    return jsonMapping
+        .read
+        .ndjson(new ByteArrayInputStream(ndjson), shape.type)
+        .parallel()
+        .collect(Collectors.toList());
+  }
+}
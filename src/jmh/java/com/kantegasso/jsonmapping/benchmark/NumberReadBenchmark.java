@@ -0,0 +1,57 @@
+package com.kantegasso.jsonmapping.benchmark;
+
+import com.kantegasso.jsonmapping.JsonMapping;
+import com.kantegasso.jsonmapping.stub.MetricSampleStub;
+import io.vavr.control.Try;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * A metrics payload where every member but the name is converted to another number type: decimals
+ * are read as BigDecimal and integers as Integer, and bound to long, double and int.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumberReadBenchmark {
+
+  JsonMapping jsonMapping;
+  JSONArray samples;
+
+  @Setup
+  public void setUp() {
+    jsonMapping = new JsonMapping(true);
+    samples = new JSONArray();
+    for (int index = 0; index < 100; index++) {
+      samples.put(
+          new JSONObject(
+              "{\"name\": \"requests\", \"count\": "
+                  + index
+                  + ", \"value\": "
+                  + (index + 0.25)
+                  + ", \"bucket\": "
+                  + (index * 1000L)
+                  + "}"));
+    }
+  }
+
+  @Benchmark
+  public Try<List<MetricSampleStub>> listFromJson() {
+    return jsonMapping.read.listFromJson(samples, MetricSampleStub.class);
+  }
+}
@@ -0,0 +1,53 @@
+package com.kantegasso.jsonmapping.benchmark;
+
+import com.kantegasso.jsonmapping.JsonMapping;
+import io.vavr.control.Try;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** populateInstanceFromJson, for the shapes that have setters. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PopulateBenchmark {
+
+  @Param({"USER", "API_TOKEN", "WIDE", "DEEP"})
+  Shape shape;
+
+  JsonMapping jsonMapping;
+  JSONObject json;
+  JSONObject patch;
+
+  @Setup
+  public void setUp() {
+    jsonMapping = new JsonMapping(true);
+    json = jsonMapping.write.objectAsJson(shape.create()).get();
+    String name = json.keys().next();
+    patch = new JSONObject().put(name, json.get(name));
+  }
+
+  @Benchmark
+  public Try<Void> populateInstanceFromJson() {
+    return jsonMapping.read.populateInstanceFromJson(json, shape.createEmpty());
+  }
+
+  /* A PATCH request changing one property, rather than populating all of them. */
+  @Benchmark
+  public Try<Void> applyMergePatch() {
+    return jsonMapping.read.applyMergePatch(patch, shape.createEmpty());
+  }
+}
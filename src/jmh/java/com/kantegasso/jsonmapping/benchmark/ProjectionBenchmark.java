@@ -0,0 +1,73 @@
+package com.kantegasso.jsonmapping.benchmark;
+
+import com.kantegasso.jsonmapping.JsonMapping;
+import com.kantegasso.jsonmapping.JsonMapping.AccessorStrategy;
+import com.kantegasso.jsonmapping.JsonMapping.Parser;
+import com.kantegasso.jsonmapping.Projection;
+import com.kantegasso.jsonmapping.stub.ScimTenantConfigStub;
+import io.vavr.control.Try;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * A tenant config in an IdP payload where most of the document, a list of group memberships, is not
+ * bound to any property.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionBenchmark {
+
+  JsonMapping orgJson;
+  JsonMapping streaming;
+  String json;
+
+  @Setup
+  public void setUp() {
+    orgJson = new JsonMapping(true, AccessorStrategy.REFLECTION, 0, Parser.ORG_JSON);
+    streaming = new JsonMapping(true, AccessorStrategy.REFLECTION, 0, Parser.STREAMING);
+    StringBuilder groups = new StringBuilder();
+    for (int index = 0; index < 200; index++) {
+      groups
+          .append(index == 0 ? "" : ", ")
+          .append("{\"value\": \"")
+          .append(index)
+          .append("\", \"display\": \"Group ")
+          .append(index)
+          .append("\", \"meta\": {\"created\": \"2024-01-01T00:00:00Z\", \"version\": ")
+          .append(index)
+          .append("}}");
+    }
+    json =
+        "{\"tenantId\": \"1\", \"tenantName\": \"Azure\", \"groups\": ["
+            + groups
+            + "], \"applicationSecret\": {\"salt\": \"a\", \"hashed\": \"b\"}, \"kind\": \"AZURE\"}";
+  }
+
+  @Benchmark
+  public Try<ScimTenantConfigStub> valueFromJson() {
+    return orgJson.read.valueFromJson(json, ScimTenantConfigStub.class);
+  }
+
+  @Benchmark
+  public Try<ScimTenantConfigStub> valueFromJsonStreaming() {
+    return streaming.read.valueFromJson(json, ScimTenantConfigStub.class);
+  }
+
+  @Benchmark
+  public Try<Projection<ScimTenantConfigStub>> projectFromJson() {
+    return streaming.read.projectFromJson(json, ScimTenantConfigStub.class);
+  }
+}
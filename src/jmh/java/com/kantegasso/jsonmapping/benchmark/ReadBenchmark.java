@@ -0,0 +1,52 @@
+package com.kantegasso.jsonmapping.benchmark;
+
+import com.kantegasso.jsonmapping.JsonMapping;
+import io.vavr.control.Try;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadBenchmark {
+
+  @Param({"USER", "API_TOKEN", "SCIM_TENANT_CONFIG", "APPLICATION_SECRET", "WIDE", "DEEP"})
+  Shape shape;
+
+  @Param({"ORG_JSON", "STREAMING"})
+  JsonMapping.Parser parser;
+
+  JsonMapping jsonMapping;
+  String json;
+
+  @Setup
+  public void setUp() {
+    jsonMapping =
+        new JsonMapping(true, JsonMapping.AccessorStrategy.REFLECTION, 1000, parser);
+    json = jsonMapping.write.objectAsJsonString(shape.create()).get();
+  }
+
+  @Benchmark
+  public Try<?> valueFromJson() {
+    return jsonMapping.read.valueFromJson(json, shape.type);
+  }
+
+  @Benchmark
+  public Try<Map<String, String>> stringMapFromJson() {
+    return jsonMapping.read.stringMapFromJson(json);
+  }
+}
@@ -0,0 +1,94 @@
+package com.kantegasso.jsonmapping.benchmark;
+
+import com.kantegasso.jsonmapping.stub.ApiTokenObjectStub;
+import com.kantegasso.jsonmapping.stub.ApplicationSecretStub;
+import com.kantegasso.jsonmapping.stub.Repository;
+import com.kantegasso.jsonmapping.stub.ScimTenantConfigStub;
+import com.kantegasso.jsonmapping.stub.ScimTenantConfigStub.ScimProviderKind;
+import com.kantegasso.jsonmapping.stub.User;
+import java.util.Arrays;
+
+/** Object shapes the benchmarks are parameterized over: the test stubs and synthetic objects. */
+public enum Shape {
+  USER(User.class) {
+    @Override
+    Object create() {
+      User user = new Repository().createUser();
+      user.setUsername("jondoe");
+      user.setEmail("jondoe@example.com");
+      user.setGroups(Arrays.asList("group 1", "group 2"));
+      return user;
+    }
+
+    @Override
+    Object createEmpty() {
+      return new Repository().createUser();
+    }
+  },
+  API_TOKEN(ApiTokenObjectStub.class) {
+    @Override
+    Object create() {
+      ApiTokenObjectStub apiToken = new ApiTokenObjectStub();
+      apiToken.setAlias("alias");
+      apiToken.setCreatedAt(1668000000000L);
+      apiToken.setHashed("hashed");
+      apiToken.setSalt("salt");
+      apiToken.setUserKey("userkey");
+      apiToken.setValidFor(86400000L);
+      return apiToken;
+    }
+
+    @Override
+    Object createEmpty() {
+      return new ApiTokenObjectStub();
+    }
+  },
+  SCIM_TENANT_CONFIG(ScimTenantConfigStub.class) {
+    @Override
+    Object create() {
+      return new ScimTenantConfigStub(
+          "1", "Azure", ApplicationSecretStub.create("salt", "hashed"), ScimProviderKind.AZURE);
+    }
+  },
+  APPLICATION_SECRET(ApplicationSecretStub.class) {
+    @Override
+    Object create() {
+      return ApplicationSecretStub.create("salt", "hashed");
+    }
+  },
+  WIDE(WideObject.class) {
+    @Override
+    Object create() {
+      return WideObject.create();
+    }
+
+    @Override
+    Object createEmpty() {
+      return new WideObject();
+    }
+  },
+  DEEP(DeepObject.class) {
+    @Override
+    Object create() {
+      return DeepObject.create(8);
+    }
+
+    @Override
+    Object createEmpty() {
+      return new DeepObject();
+    }
+  };
+
+  final Class<?> type;
+
+  Shape(Class<?> type) {
+    this.type = type;
+  }
+
+  abstract Object create();
+
+  /** An instance to populate from JSON, for shapes that have setters. */
+  Object createEmpty() {
+    throw new UnsupportedOperationException(name() + " has no setters to populate.");
+  }
+}
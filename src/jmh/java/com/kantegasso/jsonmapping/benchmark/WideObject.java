@@ -0,0 +1,255 @@
+package com.kantegasso.jsonmapping.benchmark;
+
+import com.kantegasso.jsonmapping.JsonMapping.JsonMapper;
+
+/** Synthetic flat object with many properties of mixed types. */
+@JsonMapper
+public class WideObject {
+  private String property00;
+  private int property01;
+  private long property02;
+  private double property03;
+  private boolean property04;
+  private String property05;
+  private int property06;
+  private long property07;
+  private double property08;
+  private boolean property09;
+  private String property10;
+  private int property11;
+  private long property12;
+  private double property13;
+  private boolean property14;
+  private String property15;
+  private int property16;
+  private long property17;
+  private double property18;
+  private boolean property19;
+  private String property20;
+  private int property21;
+  private long property22;
+  private double property23;
+
+  public WideObject() {}
+
+  public String getProperty00() {
+    return property00;
+  }
+
+  public void setProperty00(String property00) {
+    this.property00 = property00;
+  }
+
+  public int getProperty01() {
+    return property01;
+  }
+
+  public void setProperty01(int property01) {
+    this.property01 = property01;
+  }
+
+  public long getProperty02() {
+    return property02;
+  }
+
+  public void setProperty02(long property02) {
+    this.property02 = property02;
+  }
+
+  public double getProperty03() {
+    return property03;
+  }
+
+  public void setProperty03(double property03) {
+    this.property03 = property03;
+  }
+
+  public boolean getProperty04() {
+    return property04;
+  }
+
+  public void setProperty04(boolean property04) {
+    this.property04 = property04;
+  }
+
+  public String getProperty05() {
+    return property05;
+  }
+
+  public void setProperty05(String property05) {
+    this.property05 = property05;
+  }
+
+  public int getProperty06() {
+    return property06;
+  }
+
+  public void setProperty06(int property06) {
+    this.property06 = property06;
+  }
+
+  public long getProperty07() {
+    return property07;
+  }
+
+  public void setProperty07(long property07) {
+    this.property07 = property07;
+  }
+
+  public double getProperty08() {
+    return property08;
+  }
+
+  public void setProperty08(double property08) {
+    this.property08 = property08;
+  }
+
+  public boolean getProperty09() {
+    return property09;
+  }
+
+  public void setProperty09(boolean property09) {
+    this.property09 = property09;
+  }
+
+  public String getProperty10() {
+    return property10;
+  }
+
+  public void setProperty10(String property10) {
+    this.property10 = property10;
+  }
+
+  public int getProperty11() {
+    return property11;
+  }
+
+  public void setProperty11(int property11) {
+    this.property11 = property11;
+  }
+
+  public long getProperty12() {
+    return property12;
+  }
+
+  public void setProperty12(long property12) {
+    this.property12 = property12;
+  }
+
+  public double getProperty13() {
+    return property13;
+  }
+
+  public void setProperty13(double property13) {
+    this.property13 = property13;
+  }
+
+  public boolean getProperty14() {
+    return property14;
+  }
+
+  public void setProperty14(boolean property14) {
+    this.property14 = property14;
+  }
+
+  public String getProperty15() {
+    return property15;
+  }
+
+  public void setProperty15(String property15) {
+    this.property15 = property15;
+  }
+
+  public int getProperty16() {
+    return property16;
+  }
+
+  public void setProperty16(int property16) {
+    this.property16 = property16;
+  }
+
+  public long getProperty17() {
+    return property17;
+  }
+
+  public void setProperty17(long property17) {
+    this.property17 = property17;
+  }
+
+  public double getProperty18() {
+    return property18;
+  }
+
+  public void setProperty18(double property18) {
+    this.property18 = property18;
+  }
+
+  public boolean getProperty19() {
+    return property19;
+  }
+
+  public void setProperty19(boolean property19) {
+    this.property19 = property19;
+  }
+
+  public String getProperty20() {
+    return property20;
+  }
+
+  public void setProperty20(String property20) {
+    this.property20 = property20;
+  }
+
+  public int getProperty21() {
+    return property21;
+  }
+
+  public void setProperty21(int property21) {
+    this.property21 = property21;
+  }
+
+  public long getProperty22() {
+    return property22;
+  }
+
+  public void setProperty22(long property22) {
+    this.property22 = property22;
+  }
+
+  public double getProperty23() {
+    return property23;
+  }
+
+  public void setProperty23(double property23) {
+    this.property23 = property23;
+  }
+
+  static WideObject create() {
+    WideObject wide = new WideObject();
+    wide.setProperty00("value 0");
+    wide.setProperty01(1000);
+    wide.setProperty02(2000000014L);
+    wide.setProperty03(3.25);
+    wide.setProperty04(true);
+    wide.setProperty05("value 5");
+    wide.setProperty06(6000);
+    wide.setProperty07(7000000049L);
+    wide.setProperty08(8.25);
+    wide.setProperty09(true);
+    wide.setProperty10("value 10");
+    wide.setProperty11(11000);
+    wide.setProperty12(12000000084L);
+    wide.setProperty13(13.25);
+    wide.setProperty14(true);
+    wide.setProperty15("value 15");
+    wide.setProperty16(16000);
+    wide.setProperty17(17000000119L);
+    wide.setProperty18(18.25);
+    wide.setProperty19(true);
+    wide.setProperty20("value 20");
+    wide.setProperty21(21000);
+    wide.setProperty22(22000000154L);
+    wide.setProperty23(23.25);
+    return wide;
+  }
+}
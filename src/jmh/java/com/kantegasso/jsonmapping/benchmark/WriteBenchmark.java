@@ -0,0 +1,60 @@
+package com.kantegasso.jsonmapping.benchmark;
+
+import com.kantegasso.jsonmapping.JsonMapping;
+import io.vavr.control.Try;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+
+  @Param({"USER", "API_TOKEN", "SCIM_TENANT_CONFIG", "APPLICATION_SECRET", "WIDE", "DEEP"})
+  Shape shape;
+
+  JsonMapping jsonMapping;
+  Object object;
+
+  @Setup
+  public void setUp() {
+    jsonMapping = new JsonMapping(true);
+    object = shape.create();
+  }
+
+  @Benchmark
+  public Try<JSONObject> objectAsJson() {
+    return jsonMapping.write.objectAsJson(object);
+  }
+
+  @Benchmark
+  public Try<String> objectAsJsonString() {
+    return jsonMapping.write.objectAsJsonString(object);
+  }
+
+  /* The string encoded for an HTTP body, as objectAsBytes is meant to replace. */
+  @Benchmark
+  public byte[] objectAsJsonStringBytes() {
+    return jsonMapping.write.objectAsJsonString(object).get().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public Try<byte[]> objectAsBytes() {
+    return jsonMapping.write.objectAsBytes(object);
+  }
+}
@@ -0,0 +1,425 @@
+package com.kantegasso.jsonmapping;
+
+import com.kantegasso.jsonmapping.JsonMapping.AccessorStrategy;
+import com.kantegasso.jsonmapping.JsonMapping.JsonMapper;
+import com.kantegasso.jsonmapping.JsonMapping.JsonProperty;
+import com.kantegasso.jsonmapping.PropertyAccess.Getter;
+import com.kantegasso.jsonmapping.PropertyAccess.Instantiator;
+import com.kantegasso.jsonmapping.PropertyAccess.Setter;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reflection metadata for a mapped type. Declared members, the @JsonMapper check and property names
+ * are resolved once per class and cached, so {@link Core} does not rescan the type on every call.
+ */
+final class ClassMetadata {
+
+  final Class<?> type;
+  final boolean hasJsonMapperAnnotation;
+  /** Getters annotated with @JsonProperty. Used when writing. */
+  final List<Property> accessors;
+  /** Single argument, void set* methods. Used when reading. */
+  final List<Property> setters;
+  /** Declared fields. Used when writing or reading without accessors. */
+  final List<Property> fields;
+  /** Public constructor accepting all declared field types. Used to read immutable objects. */
+  final Option<Creator> creator;
+  /** Whether the annotated accessors are written, rather than the fields of the instance. */
+  final boolean writesAccessors;
+  /** The ways the type can be read, in the order they are tried. Always ends with FIELDS. */
+  final List<ReadStrategy> readStrategies;
+  /** Setters and fields by property name, for binding JSON members as they are read. */
+  final NameTable<Property> settersByName;
+  final NameTable<Property> fieldsByName;
+  /** Public getters by property name, annotated accessors first. Used to patch in place. */
+  final NameTable<Property> gettersByName;
+  /** Counts the calls mapping this type, to promote its accessors once it is hot. */
+  final Promotion promotion = new Promotion();
+  /** Mapper generated by JsonMapperProcessor, used instead of reflection when present. */
+  final Option<GeneratedMapper<Object>> generatedMapper;
+  /** Declared no-arg constructor. Used to read with fields. */
+  private final Option<Constructor<?>> noArgConstructor;
+  private volatile Constructor<?> accessibleNoArgConstructor;
+
+  private ClassMetadata(Class<?> type) {
+    this.type = type;
+    this.hasJsonMapperAnnotation = type.getDeclaredAnnotation(JsonMapper.class) != null;
+    List<Method> methods = List.of(type.getDeclaredMethods());
+    List<Field> declaredFields = List.of(type.getDeclaredFields());
+    this.accessors =
+        methods
+            .filter(Utils::isMethodAccessor)
+            .filter(accessor -> accessor.getAnnotation(JsonProperty.class) != null)
+            .flatMap(accessor -> Try.of(() -> Property.ofMethod(accessor, accessor.getReturnType(), accessor.getGenericReturnType(), promotion)));
+    this.setters =
+        methods
+            .filter(method -> method.getName().startsWith("set"))
+            .filter(method -> method.getParameterCount() == 1)
+            .filter(method -> method.getReturnType().equals(Void.TYPE))
+            .flatMap(setter -> Try.of(() -> Property.ofMethod(setter, setter.getParameterTypes()[0], setter.getGenericParameterTypes()[0], promotion)));
+    this.fields = declaredFields.map(field -> Property.ofField(field, promotion));
+    List<Class<?>> fieldTypes =
+        declaredFields.filter(field -> !field.getName().startsWith("this$")).map(Field::getType);
+    this.creator =
+        List.of(type.getConstructors())
+            .find(constructor -> List.of(constructor.getParameterTypes()).containsAll(fieldTypes))
+            .flatMap(constructor -> Try.of(() -> new Creator(constructor, promotion)).toOption());
+    this.writesAccessors = hasJsonMapperAnnotation && accessors.nonEmpty();
+    this.readStrategies = readStrategies();
+    this.settersByName = byName(setters);
+    this.fieldsByName = byName(fields);
+    this.gettersByName =
+        byName(
+            accessors.appendAll(
+                methods
+                    .filter(Utils::isMethodAccessor)
+                    .filter(method -> method.getParameterCount() == 0)
+                    .filter(method -> !method.getReturnType().equals(Void.TYPE))
+                    .filter(method -> Modifier.isPublic(method.getModifiers()))
+                    .filter(method -> !Modifier.isStatic(method.getModifiers()))
+                    .flatMap(getter -> Try.of(() -> Property.ofMethod(getter, getter.getReturnType(), getter.getGenericReturnType(), promotion)))));
+    this.generatedMapper =
+        hasJsonMapperAnnotation ? loadGeneratedMapper(type) : Option.none();
+    this.noArgConstructor = Try.<Constructor<?>>of(type::getDeclaredConstructor).toOption();
+  }
+
+  /*
+   * With private access allowed, a private copy of the constructor is made accessible once, so
+   * instances are not created by first failing with an IllegalAccessException for every non-public
+   * type or constructor. The shared instance is never made accessible, like cached fields.
+   */
+  Option<Constructor<?>> noArgConstructor(Settings settings) {
+    if (!settings.changePrivateModifiersAllowed || noArgConstructor.isEmpty()) {
+      return noArgConstructor;
+    }
+    Constructor<?> accessible = accessibleNoArgConstructor;
+    if (accessible == null) {
+      accessible = accessibleCopy(noArgConstructor.get());
+      accessibleNoArgConstructor = accessible;
+    }
+    return Option.some(accessible);
+  }
+
+  private static Constructor<?> accessibleCopy(Constructor<?> constructor) {
+    Class<?> type = constructor.getDeclaringClass();
+    Constructor<?> copy =
+        Try.<Constructor<?>>of(() -> type.getDeclaredConstructor(constructor.getParameterTypes()))
+            .getOrElse(constructor);
+    Try.run(() -> copy.setAccessible(true));
+    return copy;
+  }
+
+  /* Generated mappers are looked up by name, next to the type and through its class loader. */
+  @SuppressWarnings("unchecked")
+  private static Option<GeneratedMapper<Object>> loadGeneratedMapper(Class<?> type) {
+    return Try.of(() -> Class.forName(Utils.generatedMapperName(type), true, type.getClassLoader()))
+        .filter(GeneratedMapper.class::isAssignableFrom)
+        .mapTry(mapper -> (GeneratedMapper<Object>) mapper.getDeclaredConstructor().newInstance())
+        .toOption();
+  }
+
+  enum ReadStrategy {
+    CONSTRUCTOR,
+    SETTERS,
+    FIELDS
+  }
+
+  /*
+   * Decided from the members of the type, so strategies that cannot work for it are never tried:
+   * the constructor needs @JsonProperty names on all parameters, and the setters a public no-arg
+   * constructor for Class.newInstance.
+   */
+  private List<ReadStrategy> readStrategies() {
+    List<ReadStrategy> strategies = List.of(ReadStrategy.FIELDS);
+    if (hasJsonMapperAnnotation && setters.nonEmpty() && hasPublicNoArgConstructor()) {
+      strategies = strategies.prepend(ReadStrategy.SETTERS);
+    }
+    if (creator.exists(creator -> creator.hasNamedParameters)) {
+      strategies = strategies.prepend(ReadStrategy.CONSTRUCTOR);
+    }
+    return strategies;
+  }
+
+  private boolean hasPublicNoArgConstructor() {
+    return Modifier.isPublic(type.getModifiers())
+        && !Modifier.isAbstract(type.getModifiers())
+        && Try.of(() -> type.getConstructor()).isSuccess();
+  }
+
+  private static NameTable<Property> byName(List<Property> properties) {
+    Map<String, Property> byName = new HashMap<>();
+    properties.forEach(property -> byName.putIfAbsent(property.name, property));
+    return new NameTable<>(byName);
+  }
+
+  private static final int accessorSlots = AccessorStrategy.values().length * 2;
+
+  /*
+   * Compiled accessors are cached per strategy, and per private access setting since fields are
+   * compiled from different Field instances.
+   */
+  private static int accessorSlot(Settings settings) {
+    return settings.accessorStrategy.ordinal() * 2 + (settings.changePrivateModifiersAllowed ? 1 : 0);
+  }
+
+  /*
+   * Cached on the class itself, so the metadata of a discarded class loader is collected with its
+   * classes. Clearing replaces the ClassValue, leaving the old values to be collected.
+   */
+  private static volatile ClassValue<ClassMetadata> cache = newCache();
+  /* The promotion of each cached type, held weakly for promotedTypes. */
+  private static final Map<Class<?>, Promotion> promotions =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  private static ClassValue<ClassMetadata> newCache() {
+    return new ClassValue<ClassMetadata>() {
+      @Override
+      protected ClassMetadata computeValue(Class<?> type) {
+        ClassMetadata metadata = new ClassMetadata(type);
+        promotions.put(type, metadata.promotion);
+        return metadata;
+      }
+    };
+  }
+
+  static ClassMetadata of(Class<?> type) {
+    return cache.get(type);
+  }
+
+  static void clear() {
+    cache = newCache();
+    promotions.clear();
+  }
+
+  static Map<Class<?>, Integer> promotedTypes() {
+    Map<Class<?>, Integer> promoted = new HashMap<>();
+    synchronized (promotions) {
+      promotions.forEach(
+          (type, promotion) -> {
+            if (promotion.isPromoted()) {
+              promoted.put(type, promotion.calls());
+            }
+          });
+    }
+    return promoted;
+  }
+
+  /*
+   * Tiered accessors: a type starts out with the accessor strategy of the settings, which is cheap
+   * to set up, and switches to accessors compiled with LambdaMetafactory once it has been mapped
+   * promotionThreshold times. Promotion is one-way and lasts as long as the type is cached.
+   */
+  static final class Promotion {
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile boolean promoted = false;
+
+    void recordCall(Settings settings) {
+      if (!promoted
+          && settings.promotionThreshold > 0
+          && calls.incrementAndGet() >= settings.promotionThreshold) {
+        promoted = true;
+      }
+    }
+
+    Settings settings(Settings settings) {
+      return promoted && settings.promotionThreshold > 0 ? settings.promoted : settings;
+    }
+
+    boolean isPromoted() {
+      return promoted;
+    }
+
+    int calls() {
+      return calls.get();
+    }
+  }
+
+  /** A named property backed by an accessor, setter or field. */
+  static final class Property {
+    final String name;
+    /** The name as written by {@link JsonWriter}, quoted and escaped. */
+    final JsonWriter.Name writtenName;
+    final Class<?> type;
+    final Method method;
+    final Field field;
+    final ValueConverter converter;
+    private final Promotion promotion;
+    private volatile Field modifiableField;
+    private final Getter[] getters = new Getter[accessorSlots];
+    private final Setter[] setters = new Setter[accessorSlots];
+
+    private Property(
+        String name, Class<?> type, Type genericType, Method method, Field field, Promotion promotion) {
+      this.name = name;
+      this.writtenName = new JsonWriter.Name(name);
+      this.type = type;
+      this.method = method;
+      this.field = field;
+      this.promotion = promotion;
+      this.converter = ValueConverter.of(type, genericType);
+    }
+
+    Getter getter(Settings requested) {
+      Settings settings = promotion.settings(requested);
+      int slot = accessorSlot(settings);
+      Getter getter = getters[slot];
+      if (getter == null) {
+        getter =
+            method != null
+                ? PropertyAccess.getter(method, settings.accessorStrategy)
+                : PropertyAccess.getter(
+                    field(settings.changePrivateModifiersAllowed), settings.accessorStrategy);
+        getters[slot] = getter;
+      }
+      return getter;
+    }
+
+    Setter setter(Settings requested) {
+      Settings settings = promotion.settings(requested);
+      int slot = accessorSlot(settings);
+      Setter setter = setters[slot];
+      if (setter == null) {
+        setter =
+            method != null
+                ? PropertyAccess.setter(method, settings.accessorStrategy)
+                : PropertyAccess.setter(
+                    field(settings.changePrivateModifiersAllowed), settings.accessorStrategy);
+        setters[slot] = setter;
+      }
+      return setter;
+    }
+
+    static Property ofMethod(Method method, Class<?> type, Type genericType, Promotion promotion) {
+      return new Property(Utils.parseFieldName(method), type, genericType, method, null, promotion);
+    }
+
+    static Property ofField(Field field, Promotion promotion) {
+      return new Property(
+          Utils.parseFieldName(field), field.getType(), field.getGenericType(), null, field, promotion);
+    }
+
+    /*
+     * Cached Field instances are shared between JsonMapping instances. Only a private copy is made
+     * accessible, so one instance allowing private access does not leak it to the others. Only a
+     * final field also gets its final modifier cleared.
+     */
+    Field field(boolean changePrivateModifiersAllowed) {
+      if (!changePrivateModifiersAllowed) {
+        return field;
+      }
+      Field modifiable = modifiableField;
+      if (modifiable == null) {
+        modifiable =
+            Try.of(() -> field.getDeclaringClass().getDeclaredField(field.getName()))
+                .getOrElse(field);
+        if (Modifier.isFinal(modifiable.getModifiers())) {
+          Utils.makeFieldModifiable(modifiable);
+        } else {
+          Utils.makeFieldAccessible(modifiable);
+        }
+        modifiableField = modifiable;
+      }
+      return modifiable;
+    }
+  }
+
+  /**
+   * Binding plan for immutable types: the constructor, the index of each parameter by its
+   * @JsonProperty name, and a converter and default value per parameter.
+   */
+  static final class Creator {
+    final Constructor<?> constructor;
+    /** Whether every parameter has a @JsonProperty name, which is required to bind them. */
+    final boolean hasNamedParameters;
+    /** The index of each parameter by its @JsonProperty name. */
+    final NameTable<Integer> parameterNames;
+    private final ValueConverter[] converters;
+    private final Object[] defaultArguments;
+    private final Instantiator[] instantiators = new Instantiator[accessorSlots];
+    private final Promotion promotion;
+    private volatile Constructor<?> accessibleConstructor;
+
+    private Creator(Constructor<?> constructor, Promotion promotion) {
+      this.promotion = promotion;
+      this.constructor = constructor;
+      Parameter[] parameters = constructor.getParameters();
+      this.converters = new ValueConverter[parameters.length];
+      this.defaultArguments = new Object[parameters.length];
+      Map<String, Integer> indexByName = new HashMap<>();
+      boolean named = true;
+      for (int index = 0; index < parameters.length; index++) {
+        Option<String> name =
+            Option.of(parameters[index].getAnnotation(JsonProperty.class))
+                .map(JsonProperty::value)
+                .filter(value -> !value.isEmpty());
+        named &= name.isDefined();
+        if (name.isDefined()) {
+          indexByName.putIfAbsent(name.get(), index);
+        }
+        converters[index] =
+            ValueConverter.of(parameters[index].getType(), parameters[index].getParameterizedType());
+        defaultArguments[index] = Utils.primitiveDefaultValues.get(parameters[index].getType());
+      }
+      this.hasNamedParameters = named;
+      this.parameterNames = new NameTable<>(indexByName);
+    }
+
+    /** The parameter bound to a JSON member, or -1 if there is none. */
+    int parameterIndex(String name) {
+      Integer index = parameterNames.get(name);
+      return index == null ? -1 : index;
+    }
+
+    ValueConverter converter(int index) {
+      return converters[index];
+    }
+
+    /** Arguments with every parameter at its default value, null or zero for primitives. */
+    Object[] newArguments() {
+      return defaultArguments.clone();
+    }
+
+    Object argument(int index, Object converted) {
+      return converted == null ? defaultArguments[index] : converted;
+    }
+
+    Instantiator instantiator(Settings requested) {
+      Settings settings = promotion.settings(requested);
+      int slot = accessorSlot(settings);
+      Instantiator instantiator = instantiators[slot];
+      if (instantiator == null) {
+        instantiator =
+            PropertyAccess.instantiator(
+                constructor(settings.changePrivateModifiersAllowed), settings.accessorStrategy);
+        instantiators[slot] = instantiator;
+      }
+      return instantiator;
+    }
+
+    /* The constructor is public, but its type may not be. Only private access makes it callable. */
+    private Constructor<?> constructor(boolean changePrivateModifiersAllowed) {
+      if (!changePrivateModifiersAllowed) {
+        return constructor;
+      }
+      Constructor<?> accessible = accessibleConstructor;
+      if (accessible == null) {
+        accessible = accessibleCopy(constructor);
+        accessibleConstructor = accessible;
+      }
+      return accessible;
+    }
+  }
+}
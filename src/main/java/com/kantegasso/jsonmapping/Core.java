@@ -1,248 +1,1136 @@
 package com.kantegasso.jsonmapping;
 
-import com.kantegasso.jsonmapping.JsonMapping.JsonMapper;
-import com.kantegasso.jsonmapping.JsonMapping.JsonProperty;
+import com.kantegasso.jsonmapping.ClassMetadata.Creator;
+import com.kantegasso.jsonmapping.ClassMetadata.Property;
+import com.kantegasso.jsonmapping.ClassMetadata.ReadStrategy;
+import com.kantegasso.jsonmapping.JsonReader.Token;
+import com.kantegasso.jsonmapping.MappingMetrics.Operation;
+import com.kantegasso.jsonmapping.MappingMetrics.Strategy;
 import com.kantegasso.jsonmapping.error.JsonMappingException;
 import io.vavr.collection.List;
 import io.vavr.control.Option;
 import io.vavr.control.Try;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 class Core {
 
+  /* The generated mapper of the type, if JsonMapperProcessor generated one. */
+  private static Option<GeneratedMapper<Object>> generatedMapper(Class<?> valueType) {
+    return Try.of(() -> ClassMetadata.of(valueType).generatedMapper).getOrElse(Option.none());
+  }
+
+  /*
+   * A generated mapper writes the properties of its own type, so it is only used when the object
+   * is written as exactly that type.
+   */
+  private static Option<GeneratedMapper<Object>> generatedMapper(Object object, Class<?> valueType) {
+    return object.getClass().equals(valueType) ? generatedMapper(valueType) : Option.none();
+  }
+
+  /*
+   * Counts a reflective mapping of the object towards the promotion of its type, and of the
+   * declared type whose accessors may be used, to compiled accessors.
+   */
+  private static void recordCall(Object object, Class<?> valueType, Settings settings) {
+    Try.run(() -> ClassMetadata.of(valueType).promotion.recordCall(settings));
+    if (object != null && !object.getClass().equals(valueType)) {
+      Try.run(() -> ClassMetadata.of(object.getClass()).promotion.recordCall(settings));
+    }
+  }
+
+  /* Failures with fixed messages are shared, see JsonMappingException.shared. */
+  static final Supplier<JsonMappingException> recursionDepthExceeded =
+      JsonMappingException.shared("JSON-NL6M1SCB8S", "Maximum recursion depth exceeded.");
+  private static final Supplier<JsonMappingException> noFields =
+      JsonMappingException.shared("JSON-0ZNRDWGTO7", "Instance has no fields");
+  private static final Supplier<JsonMappingException> nothingWritten =
+      JsonMappingException.shared("JSON-X16GNSGKF9", "No property of the instance could be written.");
+  private static final Supplier<JsonMappingException> noSetters =
+      JsonMappingException.shared("JSON-DFJ1K9H1HS", "The type has no setters.");
+  private static final Supplier<JsonMappingException> elementNotAnObject =
+      JsonMappingException.shared("JSON-56OT70V1VW", "Expected an object as array element.");
+  private static final Supplier<JsonMappingException> noNoArgConstructor =
+      JsonMappingException.shared("JSON-APVDAS8C1X", "The type has no no-arg constructor.");
+
   static class Write {
 
-    static <T> Try<JSONObject> objectAsJson(T object, Class<?> valueType, boolean changePrivateModifiersAllowed) {
-      return objectAsJson(object, valueType, 0, changePrivateModifiersAllowed);
+    static <T> Try<JSONObject> objectAsJson(T object, Class<?> valueType, Settings settings) {
+      return objectAsJson(object, valueType, 0, settings);
     }
 
-    static <T> Try<JSONObject> objectAsJson(T object, boolean changePrivateModifiersAllowed) {
-      return objectAsJson(object, object.getClass(), 0, changePrivateModifiersAllowed);
+    static <T> Try<JSONObject> objectAsJson(T object, Settings settings) {
+      return objectAsJson(object, object.getClass(), 0, settings);
     }
 
-    static <T> Try<JSONObject> objectAsJson(T object, Class<?> valueType, int recursionDepth, boolean changePrivateModifiersAllowed) {
-      return writeJsonFromAccessors(object, valueType, recursionDepth, changePrivateModifiersAllowed)
-          .orElse(writeJsonFromBuilder(object, valueType, recursionDepth, changePrivateModifiersAllowed))
-          .orElse(writeJsonFromFields(object, recursionDepth, changePrivateModifiersAllowed));
+    static <T> Try<JSONObject> objectAsJson(T object, Class<?> valueType, int recursionDepth, Settings settings) {
+      return Try.of(() -> ClassMetadata.of(valueType))
+          .fold(
+              _throwable -> writeJsonFromFields(object, recursionDepth, settings),
+              metadata -> objectAsJson(object, metadata, recursionDepth, settings));
     }
 
-    static <T> Try<JSONObject> writeJsonFromFields(T object, int recursionDepth, boolean changePrivateModifiersAllowed) {
-      return Try.of(() -> object.getClass().getDeclaredFields())
-          .mapTry(List::of)
-          .filterTry(
-              fields -> !fields.isEmpty(),
-              () -> new JsonMappingException("JSON-0ZNRDWGTO7", "Instance has no fields"))
-          .filterTry(fields -> recursionDepth < Utils.MAX_RECURSION_DEPTH)
+    /* Writes the object as the type of the metadata, resolved by the caller. */
+    private static <T> Try<JSONObject> objectAsJson(
+        T object, ClassMetadata metadata, int recursionDepth, Settings settings) {
+      if (metadata.generatedMapper.isDefined() && object.getClass().equals(metadata.type)) {
+        return writeJsonFromGeneratedMapper(
+            object, metadata.generatedMapper.get(), recursionDepth, settings);
+      }
+      return objectAsJsonWithReflection(object, metadata, recursionDepth, settings);
+    }
+
+    private static <T> Try<JSONObject> objectAsJsonWithReflection(
+        T object, ClassMetadata metadata, int recursionDepth, Settings settings) {
+      recordCall(object, metadata.type, settings);
+      if (!metadata.writesAccessors) {
+        return writeJsonFromFields(object, recursionDepth, settings);
+      }
+      // Only an object none of whose accessors returned a value is written with its fields. The
+      // next object of the type is written with its accessors again.
+      return writeJsonFromAccessors(object, metadata.type, recursionDepth, settings)
+          .orElse(() -> writeJsonFromFields(object, recursionDepth, settings));
+    }
+
+    /*
+     * The element type is resolved once for the whole array. Basic values and nulls are written as
+     * they are, and an element that cannot be written fails the array.
+     */
+    static <T> Try<JSONArray> listAsJsonArray(
+        Iterable<T> values, Class<?> elementType, Settings settings) {
+      return Try.of(() -> ClassMetadata.of(elementType))
+          .mapTry(
+              metadata -> {
+                JSONArray array = new JSONArray();
+                for (T value : values) {
+                  if (value == null) {
+                    array.put(JSONObject.NULL);
+                  } else if (Utils.isBasicJavaObject(value)) {
+                    array.put(value);
+                  } else {
+                    array.put(objectAsJson(value, metadata, 0, settings).get());
+                  }
+                }
+                return array;
+              });
+    }
+
+    /*
+     * Where the generated mapper fails, e.g. because no property had a value, the object is written
+     * with reflection, which falls back to other strategies as it would without the mapper.
+     */
+    static <T> Try<JSONObject> writeJsonFromGeneratedMapper(
+        T object, GeneratedMapper<Object> mapper, int recursionDepth, Settings settings) {
+      return Instrumentation.strategy(
+              settings,
+              Operation.WRITE,
+              object.getClass(),
+              Strategy.GENERATED_MAPPER,
+              recursionDepth,
+              Try.success(mapper)
+                  .filterTry(_mapper -> recursionDepth < Utils.MAX_RECURSION_DEPTH, recursionDepthExceeded)
+                  .mapTry(_mapper -> mapper.toJson(object, new MappingContext(recursionDepth, settings)))
+                  .filterTry(json -> !json.isEmpty(), nothingWritten))
+          .orElse(
+              () ->
+                  Try.of(() -> ClassMetadata.of(object.getClass()))
+                      .flatMap(
+                          metadata ->
+                              objectAsJsonWithReflection(object, metadata, recursionDepth, settings)));
+    }
+
+    static <T> Try<JSONObject> writeJsonFromFields(T object, int recursionDepth, Settings settings) {
+      return Try.of(() -> ClassMetadata.of(object.getClass()))
+          .filterTry(metadata -> !metadata.fields.isEmpty(), noFields)
+          .filterTry(metadata -> recursionDepth < Utils.MAX_RECURSION_DEPTH, recursionDepthExceeded)
           .filterTry(
-              _fields -> object.getClass().getDeclaredAnnotation(JsonMapper.class) != null,
+              metadata -> metadata.hasJsonMapperAnnotation,
               () ->
                   new JsonMappingException(
                       "JSON-LK5AWB99NQ",
-                      "The type '"
+                      () ->
+                          "The type '"
                           + Try.of(() -> object.getClass().getName()).getOrElse("")
                           + "' does not have the required annotation @JsonMapper."))
-          .mapTry(
-              fields -> {
-                JSONObject jsonObject = new JSONObject();
-                fields.forEach(
-                    field -> {
-                      String fieldName = Utils.parseFieldName(field);
-                      Try.of(
-                              () -> {
-                                if(changePrivateModifiersAllowed) {
-                                  Utils.makeFieldAccessible(field);
-                                }
-                                return field.get(object);
-                              })
-                          .mapTry(
-                              value -> {
-                                if (Utils.isBasicJavaObject(value)) {
-                                  return value;
-                                } else {
-                                  return objectAsJson(value, value.getClass(), recursionDepth + 1, changePrivateModifiersAllowed)
-                                      .getOrElseThrow(
-                                          () ->
-                                              new RuntimeException("Failed to write json nested"));
-                                }
-                              })
-                          .mapTry(value -> jsonObject.put(fieldName, value));
-                    });
-                return jsonObject;
-              })
-          .filterTry(json -> !json.isEmpty());
+          .map(metadata -> propertiesAsJson(object, metadata.fields, recursionDepth, settings))
+          .filterTry(json -> !json.isEmpty(), nothingWritten)
+          .transform(
+              json ->
+                  Instrumentation.strategy(
+                      settings, Operation.WRITE, object.getClass(), Strategy.FIELDS, recursionDepth, json));
     }
 
     /*
      * Note that @JsonProperty annotations are needed on accessors.
      */
     static <T> Try<JSONObject> writeJsonFromAccessors(
-        T object, Class<?> valueType, int recursionDepth, boolean changePrivateModifiersAllowed) {
-      return Try.of(() -> valueType)
-          .filterTry(_type -> recursionDepth < Utils.MAX_RECURSION_DEPTH)
+        T object, Class<?> valueType, int recursionDepth, Settings settings) {
+      return Try.of(() -> ClassMetadata.of(valueType))
+          .filterTry(_metadata -> recursionDepth < Utils.MAX_RECURSION_DEPTH, recursionDepthExceeded)
           .filterTry(
-              type -> valueType.getDeclaredAnnotation(JsonMapper.class) != null,
+              metadata -> metadata.hasJsonMapperAnnotation,
               () ->
                   new JsonMappingException(
                       "JSON-5COOZK00Z8",
-                      "The type '"
+                      () ->
+                          "The type '"
                           + Try.of(() -> object.getClass().getName()).getOrElse("")
                           + "' does not have the required annotation @JsonMapper."))
+          .map(metadata -> propertiesAsJson(object, metadata.accessors, recursionDepth, settings))
+          .filterTry(json -> !json.isEmpty(), nothingWritten)
+          .transform(
+              json ->
+                  Instrumentation.strategy(
+                      settings, Operation.WRITE, valueType, Strategy.ACCESSORS, recursionDepth, json));
+    }
+
+    /*
+     * Properties that are null or cannot be read are left out, as are nested objects that cannot
+     * be written and numbers JSON cannot represent.
+     */
+    private static JSONObject propertiesAsJson(
+        Object object, List<Property> properties, int recursionDepth, Settings settings) {
+      JSONObject jsonObject = new JSONObject();
+      for (Property property : properties) {
+        Object value = Try.of(() -> property.getter(settings).get(object)).getOrNull();
+        if (value == null) {
+          continue;
+        }
+        Object jsonValue =
+            Utils.isBasicJavaObject(value)
+                ? value
+                : objectAsJson(value, value.getClass(), recursionDepth + 1, settings).getOrNull();
+        if (jsonValue != null && JsonWriter.isWritable(jsonValue)) {
+          Try.run(() -> jsonObject.put(property.name, jsonValue));
+        }
+      }
+      return jsonObject;
+    }
+
+    static <T> Try<Void> writeObject(T object, Class<?> valueType, JsonWriter writer, Settings settings) {
+      Option<GeneratedMapper<Object>> generated = generatedMapper(object, valueType);
+      if (generated.isDefined()) {
+        return writeJsonFromGeneratedMapper(object, generated.get(), 0, settings)
+            .mapTry(
+                json -> {
+                  writer.value(json);
+                  writer.flush();
+                  return null;
+                });
+      }
+      return writableProperties(object, valueType, 0, settings)
           .mapTry(
-              type -> {
-                JSONObject jsonObject = new JSONObject();
-                List.of(type.getDeclaredMethods())
-                    .filter(Utils::isMethodAccessor)
-                    .filter(accessor -> accessor.getAnnotation(JsonProperty.class) != null)
-                    .forEach(
-                        accessor -> {
-                          String fieldName = Utils.parseFieldName(accessor);
-                          Try.of(() -> accessor.invoke(object, (Object[]) null))
-                              .mapTry(
-                                  value -> {
-                                    if (Utils.isBasicJavaObject(value)) {
-                                      return value;
-                                    } else {
-                                      return objectAsJson(
-                                          value, value.getClass(), recursionDepth + 1, changePrivateModifiersAllowed);
-                                    }
-                                  })
-                              .mapTry(value -> jsonObject.put(fieldName, value));
-                        });
-                return jsonObject;
-              })
-          .filterTry(json -> !json.isEmpty());
+              properties -> {
+                writeProperties(object, properties, writer, 0, settings);
+                writer.flush();
+                return null;
+              });
     }
 
-  // TODO
-  static <T> Try<JSONObject> writeJsonFromBuilder(
-        T object, Class<?> valueType, int recursionDepth, boolean changePrivateModifiersAllowed) {
-      return Try.of(() -> valueType)
-          .filterTry(_type -> recursionDepth < Utils.MAX_RECURSION_DEPTH)
+    /* Encodes the object to UTF-8 in the pooled buffer of the thread, and copies out the bytes. */
+    static <T> Try<byte[]> objectAsBytes(T object, Class<?> valueType, Settings settings) {
+      Utf8Buffer buffer = Utf8Buffer.acquire();
+      try {
+        return writeObject(object, valueType, new JsonWriter(buffer), settings)
+            .map(_void -> buffer.toByteArray());
+      } finally {
+        buffer.close();
+      }
+    }
+
+    /* The target is left untouched unless all of the JSON fits in it. */
+    static <T> Try<Integer> objectTo(
+        T object, Class<?> valueType, ByteBuffer target, Settings settings) {
+      Utf8Buffer buffer = Utf8Buffer.acquire();
+      try {
+        return writeObject(object, valueType, new JsonWriter(buffer), settings)
+            .filterTry(
+                _void -> buffer.size() <= target.remaining(),
+                () ->
+                    new JsonMappingException(
+                        "JSON-PGOQ8NGIMB",
+                        "The JSON is "
+                            + buffer.size()
+                            + " bytes, but only "
+                            + target.remaining()
+                            + " bytes remain in the buffer."))
+            .mapTry(
+                _void -> {
+                  buffer.copyTo(target);
+                  return buffer.size();
+                });
+      } finally {
+        buffer.close();
+      }
+    }
+
+    /*
+     * Writes the elements as a JSON array. The properties are resolved when the type of the
+     * elements changes, so a run of elements of the same type only looks them up once. Without an
+     * element type, each element is written as its own type.
+     */
+    static <T> Try<Void> writeArray(
+        Iterator<T> values, Class<?> elementType, JsonWriter writer, Settings settings) {
+      return Try.run(
+          () -> {
+            writer.beginArray();
+            Class<?> resolvedType = null;
+            Option<GeneratedMapper<Object>> generated = Option.none();
+            List<Property> properties = List.empty();
+            while (values.hasNext()) {
+              T value = values.next();
+              if (value == null || Utils.isBasicJavaObject(value)) {
+                writer.value(value);
+                continue;
+              }
+              Class<?> valueType = elementType != null ? elementType : value.getClass();
+              if (!value.getClass().equals(resolvedType)) {
+                generated = generatedMapper(value, valueType);
+                properties =
+                    generated.isDefined()
+                        ? List.empty()
+                        : writableProperties(value, valueType, 0, settings).get();
+                resolvedType = value.getClass();
+              } else if (generated.isEmpty()) {
+                recordCall(value, valueType, settings);
+              }
+              if (generated.isDefined()) {
+                writer.value(writeJsonFromGeneratedMapper(value, generated.get(), 0, settings).get());
+              } else {
+                writeProperties(value, properties, writer, 0, settings);
+              }
+            }
+            writer.endArray();
+            writer.flush();
+          });
+    }
+
+    /*
+     * Writes each object as one line of JSON. The objects are encoded as the stream is consumed,
+     * in parallel if it is parallel, and written in encounter order. Writing stops at the first
+     * object that cannot be written. Each object is measured like objectAsJsonString.
+     */
+    static <T> Try<Void> writeNdjson(Stream<T> values, Writer writer, Settings settings) {
+      AtomicReference<Throwable> failure = new AtomicReference<>();
+      return Try.run(
+          () -> {
+            values
+                .map(
+                    value -> {
+                      long start = Instrumentation.start(settings);
+                      return Instrumentation.record(
+                          settings,
+                          Operation.WRITE,
+                          value == null ? null : value.getClass(),
+                          start,
+                          Try.of(() -> objectAsJson(value, settings).get().toString()),
+                          Instrumentation::utf8Length);
+                    })
+                .forEachOrdered(
+                    line -> {
+                      if (failure.get() == null) {
+                        Try.run(
+                                () -> {
+                                  writer.write(line.get());
+                                  writer.write('\n');
+                                })
+                            .onFailure(failure::set);
+                      }
+                    });
+            writer.flush();
+            if (failure.get() != null) {
+              throw failure.get();
+            }
+          });
+    }
+
+    /*
+     * A streamed object cannot fall back to another strategy once output is written, so the
+     * properties are chosen upfront: the annotated accessors of the declared type if it has any,
+     * otherwise the fields of the instance.
+     */
+    private static Try<List<Property>> writableProperties(
+        Object object, Class<?> valueType, int recursionDepth, Settings settings) {
+      recordCall(object, valueType, settings);
+      return Try.of(() -> ClassMetadata.of(valueType))
+          .filterTry(_metadata -> recursionDepth < Utils.MAX_RECURSION_DEPTH, recursionDepthExceeded)
+          .flatMapTry(
+              metadata ->
+                  metadata.writesAccessors
+                      ? Instrumentation.strategy(
+                          settings,
+                          Operation.WRITE,
+                          valueType,
+                          Strategy.ACCESSORS,
+                          recursionDepth,
+                          Try.success(metadata.accessors))
+                      : Try.of(() -> ClassMetadata.of(object.getClass()))
+                          .filterTry(
+                              instanceMetadata -> instanceMetadata.hasJsonMapperAnnotation,
+                              () ->
+                                  new JsonMappingException(
+                                      "JSON-LK5AWB99NQ",
+                                      () ->
+                                          "The type '"
+                                          + Try.of(() -> object.getClass().getName()).getOrElse("")
+                                          + "' does not have the required annotation @JsonMapper."))
+                          .filterTry(
+                              instanceMetadata -> !instanceMetadata.fields.isEmpty(),
+                              noFields)
+                          .map(instanceMetadata -> instanceMetadata.fields)
+                          .transform(
+                              fields ->
+                                  Instrumentation.strategy(
+                                      settings,
+                                      Operation.WRITE,
+                                      object.getClass(),
+                                      Strategy.FIELDS,
+                                      recursionDepth,
+                                      fields)));
+    }
+
+    /*
+     * Like the JSONObject based methods, properties that are null or cannot be read are left out,
+     * as are nested objects that cannot be written.
+     */
+    private static void writeProperties(
+        Object object, List<Property> properties, JsonWriter writer, int recursionDepth, Settings settings)
+        throws IOException {
+      writer.beginObject();
+      for (Property property : properties) {
+        Object value = Try.of(() -> property.getter(settings).get(object)).getOrNull();
+        if (value == null || !JsonWriter.isWritable(value)) {
+          continue;
+        }
+        if (Utils.isBasicJavaObject(value)) {
+          writer.name(property.writtenName).value(value);
+          continue;
+        }
+        Option<GeneratedMapper<Object>> generated = generatedMapper(value, value.getClass());
+        if (generated.isDefined()) {
+          Try<JSONObject> nested =
+              writeJsonFromGeneratedMapper(value, generated.get(), recursionDepth + 1, settings);
+          if (nested.isSuccess()) {
+            writer.name(property.writtenName).value(nested.get());
+          }
+        } else {
+          Try<List<Property>> nestedProperties =
+              writableProperties(value, value.getClass(), recursionDepth + 1, settings);
+          if (nestedProperties.isSuccess()) {
+            writer.name(property.writtenName);
+            writeProperties(value, nestedProperties.get(), writer, recursionDepth + 1, settings);
+          }
+        }
+      }
+      writer.endObject();
+    }
+
+    /*
+     * The RFC 7386 merge patch turning one JSON object into the other: removed members are null,
+     * nested objects are diffed, and other changed values, including arrays, are replaced whole.
+     */
+    static JSONObject mergePatch(JSONObject before, JSONObject after) {
+      JSONObject patch = new JSONObject();
+      for (String name : before.keySet()) {
+        if (!after.has(name)) {
+          patch.put(name, JSONObject.NULL);
+        }
+      }
+      for (String name : after.keySet()) {
+        Object previous = before.opt(name);
+        Object value = after.opt(name);
+        if (previous instanceof JSONObject && value instanceof JSONObject) {
+          JSONObject nested = mergePatch((JSONObject) previous, (JSONObject) value);
+          if (!nested.isEmpty()) {
+            patch.put(name, nested);
+          }
+        } else if (!isSameValue(previous, value)) {
+          patch.put(name, value);
+        }
+      }
+      return patch;
+    }
+
+    private static boolean isSameValue(Object previous, Object value) {
+      if (previous instanceof JSONObject) {
+        return ((JSONObject) previous).similar(value);
+      } else if (previous instanceof JSONArray) {
+        return ((JSONArray) previous).similar(value);
+      }
+      // Values of other types are written with toString(), so they are the same if it is.
+      return previous != null
+          && (previous.equals(value)
+              || JSONObject.valueToString(previous).equals(JSONObject.valueToString(value)));
+    }
+  }
+
+  static class Read {
+
+    static <T> Try<T> valueFromJson(JSONObject jsonObject, Class<T> valueType, Settings settings) {
+      return Try.of(() -> ClassMetadata.of(valueType))
           .filterTry(
-              type -> valueType.getDeclaredAnnotation(JsonMapper.class) != null,
+              metadata -> metadata.hasJsonMapperAnnotation,
               () ->
                   new JsonMappingException(
-                      "JSON-5COOZK00Z8",
-                      "The type '"
-                          + Try.of(() -> object.getClass().getName()).getOrElse("")
+                      "JSON-KFSVGVSYHL",
+                      () ->
+                          "The type '"
+                          + Try.of(valueType::getName).getOrElse("")
                           + "' does not have the required annotation @JsonMapper."))
-          .mapTry(
-              type -> {
-                JSONObject jsonObject = new JSONObject();
-                List.of(type.getDeclaredMethods())
-                    .filter(Utils::isMethodAccessor)
-                    .filter(accessor -> accessor.getAnnotation(JsonProperty.class) != null)
-                    .forEach(
-                        accessor -> {
-                          String fieldName = Utils.parseFieldName(accessor);
-                          Try.of(() -> accessor.invoke(object, (Object[]) null))
-                              .mapTry(
-                                  value -> {
-                                    if (Utils.isBasicJavaObject(value)) {
-                                      return value;
-                                    } else {
-                                      return objectAsJson(
-                                          value, value.getClass(), recursionDepth + 1, changePrivateModifiersAllowed);
-                                    }
-                                  })
-                              .mapTry(value -> jsonObject.put(fieldName, value));
-                        });
-                return jsonObject;
+          .flatMapTry(_metadata -> valueFromJson(jsonObject, valueType, 0, settings));
+    }
+
+    static <T> Try<T> valueFromReader(JsonReader reader, Class<T> valueType, Settings settings) {
+      return readValue(reader, valueType, settings)
+          .filterTry(
+              _value -> reader.peek() == Token.END_DOCUMENT,
+              () -> reader.syntaxError("Expected end of document"));
+    }
+
+    /*
+     * Binds the properties of the type, or only the named ones, while the reader scans over every
+     * other member without reading it. Generated mappers are not used for the top-level object,
+     * since they need a JSONObject of all of it.
+     */
+    static <T> Try<Projection<T>> projectionFromReader(
+        JsonReader reader, Class<T> valueType, Set<String> properties, Settings settings) {
+      JsonReader scanning = reader.skippingByBrackets();
+      return readableMetadata(valueType)
+          .mapTry(metadata -> bindWithStrategy(scanning, metadata, properties, 0, settings))
+          .mapTry(valueType::cast)
+          .filterTry(
+              _value -> scanning.peek() == Token.END_DOCUMENT,
+              () -> scanning.syntaxError("Expected end of document"))
+          .map(value -> new Projection<>(value, scanning.skippedBytes()));
+    }
+
+    /* Reads a JSON object as the same Java types as JSONObject.toMap(). */
+    @SuppressWarnings("unchecked")
+    static Try<Map<String, Object>> mapFromReader(JsonReader reader) {
+      return Try.of(
+              () -> {
+                if (reader.peek() != Token.BEGIN_OBJECT) {
+                  throw reader.syntaxError("Expected an object");
+                }
+                return (Map<String, Object>) reader.nextValue();
               })
-          .filterTry(json -> !json.isEmpty());
+          .filterTry(
+              _map -> reader.peek() == Token.END_DOCUMENT,
+              () -> reader.syntaxError("Expected end of document"));
     }
-  }
 
-  static class Read {
+    static <T> Try<T> readValue(JsonReader reader, Class<T> valueType, Settings settings) {
+      return readableMetadata(valueType)
+          .mapTry(metadata -> bindObject(reader, metadata, 0, settings))
+          .mapTry(valueType::cast);
+    }
 
-    static <T> Try<T> valueFromJson(JSONObject jsonObject, Class<T> valueType, boolean changePrivateModifiersAllowed) {
-      return Try.of(() -> valueType)
+    private static Try<ClassMetadata> readableMetadata(Class<?> valueType) {
+      return Try.of(() -> ClassMetadata.of(valueType))
           .filterTry(
-              type -> type.getDeclaredAnnotation(JsonMapper.class) != null,
+              metadata -> metadata.hasJsonMapperAnnotation,
               () ->
                   new JsonMappingException(
                       "JSON-KFSVGVSYHL",
-                      "The type '"
+                      () ->
+                          "The type '"
                           + Try.of(valueType::getName).getOrElse("")
-                          + "' does not have the required annotation @JsonMapper."))
-          .flatMapTry(_type -> valueFromJson(jsonObject, valueType, 0, changePrivateModifiersAllowed));
+                          + "' does not have the required annotation @JsonMapper."));
+    }
+
+    /*
+     * The element type is checked once for the whole array. Null elements are read as null, and
+     * an element that cannot be read fails the list.
+     */
+    static <T> Try<java.util.List<T>> listFromJson(
+        JSONArray jsonArray, Class<T> elementType, Settings settings) {
+      return readableMetadata(elementType)
+          .mapTry(
+              _metadata -> {
+                java.util.List<T> values = new ArrayList<>(jsonArray.length());
+                for (Object element : jsonArray) {
+                  if (JSONObject.NULL.equals(element)) {
+                    values.add(null);
+                  } else if (element instanceof JSONObject) {
+                    values.add(valueFromJson((JSONObject) element, elementType, 0, settings).get());
+                  } else {
+                    throw elementNotAnObject.get();
+                  }
+                }
+                return values;
+              });
+    }
+
+    static <T> Try<java.util.List<T>> listFromReader(
+        JsonReader reader, Class<T> elementType, Settings settings) {
+      return readableMetadata(elementType)
+          .mapTry(
+              metadata -> {
+                java.util.List<T> values = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                  values.add(readElement(reader, metadata, elementType, settings));
+                }
+                reader.endArray();
+                return values;
+              })
+          .filterTry(
+              _values -> reader.peek() == Token.END_DOCUMENT,
+              () -> reader.syntaxError("Expected end of document"));
+    }
+
+    static <T> Iterator<Try<T>> iterateArray(
+        JsonReader reader, Class<T> elementType, Settings settings) {
+      return new ArrayIterator<>(reader, readableMetadata(elementType), elementType, settings);
+    }
+
+    /*
+     * Each line is read and measured like valueFromJson(String), so a parallel stream decodes lines
+     * in parallel.
+     */
+    static <T> Stream<Try<T>> ndjson(Stream<String> lines, Class<T> valueType, Settings settings) {
+      return lines
+          .filter(line -> !line.trim().isEmpty())
+          .map(
+              line -> {
+                long start = Instrumentation.start(settings);
+                return Instrumentation.record(
+                    settings,
+                    Operation.READ,
+                    valueType,
+                    start,
+                    Try.of(() -> new JSONObject(line))
+                        .flatMapTry(jsonObject -> valueFromJson(jsonObject, valueType, settings)),
+                    Instrumentation.utf8Length(settings, line));
+              });
+    }
+
+    private static <T> T readElement(
+        JsonReader reader, ClassMetadata metadata, Class<T> elementType, Settings settings)
+        throws Throwable {
+      if (reader.peek() == Token.NULL) {
+        reader.nextNull();
+        return null;
+      }
+      return elementType.cast(bindObject(reader, metadata, 0, settings));
     }
 
-    private static <T> Try<T> valueFromJson(
-        JSONObject jsonObject, Class<T> valueType, int recursionDepth, boolean changePrivateModifiersAllowed) {
-      return parseObjectWithConstructor(jsonObject, valueType, recursionDepth, changePrivateModifiersAllowed)
-          .orElse(parseMutableObjectWithSetters(jsonObject, valueType, recursionDepth, changePrivateModifiersAllowed))
-          .orElse(parseObjectWithFields(jsonObject, valueType, recursionDepth, changePrivateModifiersAllowed));
+    /*
+     * Reads one element per call to next, so only the current element is held in memory. The
+     * reader cannot find the next element after a failure, so iteration ends with the first one.
+     * Each call to next is measured as a read of one element, of unknown size.
+     */
+    private static final class ArrayIterator<T> implements Iterator<Try<T>> {
+      private final JsonReader reader;
+      private final Try<ClassMetadata> metadata;
+      private final Class<T> elementType;
+      private final Settings settings;
+      private boolean started = false;
+      private boolean finished = false;
+      private Try<T> failure = null;
+
+      ArrayIterator(
+          JsonReader reader, Try<ClassMetadata> metadata, Class<T> elementType, Settings settings) {
+        this.reader = reader;
+        this.metadata = metadata;
+        this.elementType = elementType;
+        this.settings = settings;
+      }
+
+      @Override
+      public boolean hasNext() {
+        if (failure != null) {
+          return true;
+        } else if (finished) {
+          return false;
+        }
+        Try<Boolean> hasElement = Try.of(this::advance);
+        if (hasElement.isFailure()) {
+          failure = Try.failure(hasElement.getCause());
+          return true;
+        }
+        finished = !hasElement.get();
+        return hasElement.get();
+      }
+
+      @Override
+      public Try<T> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        long start = Instrumentation.start(settings);
+        Try<T> element;
+        if (failure != null) {
+          element = failure;
+          failure = null;
+          finished = true;
+        } else {
+          element = Try.of(() -> readElement(reader, metadata.get(), elementType, settings));
+          finished = element.isFailure();
+        }
+        return Instrumentation.record(
+            settings, Operation.READ, elementType, start, element, Instrumentation.UNKNOWN_SIZE);
+      }
+
+      private boolean advance() throws IOException {
+        if (!started) {
+          metadata.get();
+          reader.beginArray();
+          started = true;
+        }
+        if (reader.hasNext()) {
+          return true;
+        }
+        reader.endArray();
+        if (reader.peek() != Token.END_DOCUMENT) {
+          throw reader.syntaxError("Expected end of document");
+        }
+        return false;
+      }
+    }
+
+    /*
+     * Binds the members of a JSON object as they are read. A stream cannot be rewound, so the
+     * strategy is picked upfront: the generated mapper if there is one, otherwise the first read
+     * strategy of the type. Members missing from the JSON leave the property untouched.
+     */
+    private static Object bindObject(JsonReader reader, ClassMetadata metadata, int recursionDepth, Settings settings)
+        throws Throwable {
+      if (recursionDepth >= Utils.MAX_RECURSION_DEPTH) {
+        throw recursionDepthExceeded.get();
+      }
+      if (metadata.generatedMapper.isDefined()) {
+        if (reader.peek() != Token.BEGIN_OBJECT) {
+          throw reader.syntaxError("Expected an object");
+        }
+        JSONObject json = new JSONObject((Map<?, ?>) reader.nextValue());
+        Try<Object> value =
+            Try.of(
+                () ->
+                    metadata.generatedMapper.get()
+                        .fromJson(json, new MappingContext(recursionDepth, settings)));
+        if (value.isSuccess()) {
+          Instrumentation.strategyUsed(
+              settings, Operation.READ, metadata.type, Strategy.GENERATED_MAPPER, recursionDepth);
+          return value.get();
+        }
+        // Where the generated mapper fails, the object is bound as it would be without it.
+        return bindWithStrategy(
+            new JsonReader(json.toString()), metadata, null, recursionDepth, settings);
+      }
+      return bindWithStrategy(reader, metadata, null, recursionDepth, settings);
+    }
+
+    /*
+     * Binds with the first read strategy of the type. With a set of properties, only those are
+     * bound and the other members are skipped like unknown ones.
+     */
+    private static Object bindWithStrategy(
+        JsonReader reader, ClassMetadata metadata, Set<String> properties, int recursionDepth, Settings settings)
+        throws Throwable {
+      metadata.promotion.recordCall(settings);
+      ReadStrategy strategy = metadata.readStrategies.head();
+      Object instance;
+      switch (strategy) {
+        case CONSTRUCTOR:
+          {
+            Creator creator = metadata.creator.get();
+            instance =
+                bindWithCreator(
+                    reader, creator, retain(creator.parameterNames, properties, metadata), recursionDepth, settings);
+            break;
+          }
+        case SETTERS:
+          instance = metadata.type.newInstance();
+          bindProperties(
+              reader, instance, retain(metadata.settersByName, properties, metadata), false, recursionDepth, settings);
+          break;
+        default:
+          instance = instantiate(metadata.type, settings).get();
+          bindProperties(
+              reader, instance, retain(metadata.fieldsByName, properties, metadata), true, recursionDepth, settings);
+      }
+      Instrumentation.strategyUsed(
+          settings, Operation.READ, metadata.type, Instrumentation.strategy(strategy), recursionDepth);
+      return instance;
+    }
+
+    private static <V> NameTable<V> retain(
+        NameTable<V> names, Set<String> properties, ClassMetadata metadata) {
+      if (properties == null) {
+        return names;
+      }
+      NameTable<V> retained = names.retain(properties);
+      for (String property : properties) {
+        if (retained.get(property) == null) {
+          throw new JsonMappingException(
+              "JSON-5Y5RSV7IKU",
+              () ->
+                  "The type '"
+                  + metadata.type.getName()
+                  + "' does not have a readable property '"
+                  + property
+                  + "'.");
+        }
+      }
+      return retained;
+    }
+
+    private static <T> Try<T> instantiate(Class<T> valueType, Settings settings) {
+      return ClassMetadata.of(valueType).noArgConstructor(settings)
+          .toTry(noNoArgConstructor)
+          .mapTry(constructor -> valueType.cast(constructor.newInstance()));
+    }
+
+    private static Object bindWithCreator(
+        JsonReader reader, Creator creator, NameTable<Integer> parameterNames, int recursionDepth, Settings settings)
+        throws Throwable {
+      requireNamedParameters(creator);
+      Object[] arguments = creator.newArguments();
+      reader.beginObject();
+      while (reader.hasNext()) {
+        Integer index = reader.nextName(parameterNames);
+        if (index == null) {
+          reader.skipValue();
+        } else {
+          arguments[index] =
+              creator.argument(
+                  index, readProperty(reader, creator.converter(index), recursionDepth, settings));
+        }
+      }
+      reader.endObject();
+      return creator.instantiator(settings).newInstance(arguments);
+    }
+
+    /* Like parseObjectWithFields, fields that cannot be set are ignored. */
+    private static void bindProperties(
+        JsonReader reader,
+        Object instance,
+        NameTable<Property> properties,
+        boolean ignoreFailures,
+        int recursionDepth,
+        Settings settings)
+        throws Throwable {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        Property property = reader.nextName(properties);
+        if (property == null) {
+          reader.skipValue();
+          continue;
+        }
+        Object value = readProperty(reader, property.converter, recursionDepth, settings);
+        if (value == null && property.type.isPrimitive()) {
+          continue;
+        }
+        Try<Void> result = Try.run(() -> property.setter(settings).set(instance, value));
+        if (!ignoreFailures) {
+          result.get();
+        }
+      }
+      reader.endObject();
+    }
+
+    /* Reads the whole document as the value of a property, e.g. a member indexed by a lazy view. */
+    static Object propertyFromReader(JsonReader reader, ValueConverter converter, Settings settings)
+        throws Throwable {
+      Object value = readProperty(reader, converter, 0, settings);
+      if (reader.peek() != Token.END_DOCUMENT) {
+        throw reader.syntaxError("Expected end of document");
+      }
+      return value;
+    }
+
+    private static Object readProperty(
+        JsonReader reader, ValueConverter converter, int recursionDepth, Settings settings) throws Throwable {
+      if (reader.peek() == Token.BEGIN_OBJECT && converter.isNested()) {
+        ClassMetadata nested = ClassMetadata.of(converter.type);
+        if (!nested.hasJsonMapperAnnotation) {
+          throw new JsonMappingException(
+              "JSON-53V63DWHJL",
+              "The nested type '" + converter.type.getName() + "' does not have the required annotation @JsonMapper.");
+        }
+        return bindObject(reader, nested, recursionDepth + 1, settings);
+      }
+      return convertProperty(converter, reader.nextValue(), recursionDepth, settings);
+    }
+
+    /*
+     * A collection or map with an element that cannot be converted is left unset, as null, rather
+     * than set with the elements that could.
+     */
+    private static Object convertProperty(
+        ValueConverter converter, Object value, int recursionDepth, Settings settings) throws Throwable {
+      return converter.isContainer()
+          ? Try.of(() -> converter.convert(value, recursionDepth, settings)).getOrNull()
+          : converter.convert(value, recursionDepth, settings);
+    }
+
+    static <T> Try<T> valueFromJson(
+        JSONObject jsonObject, Class<T> valueType, int recursionDepth, Settings settings) {
+      Option<GeneratedMapper<Object>> generated = generatedMapper(valueType);
+      if (generated.isDefined()) {
+        // Where the generated mapper fails, reflection decides, as it would without the mapper.
+        return parseObjectWithGeneratedMapper(jsonObject, valueType, generated.get(), recursionDepth, settings)
+            .orElse(() -> valueFromJsonWithReflection(jsonObject, valueType, recursionDepth, settings));
+      }
+      return valueFromJsonWithReflection(jsonObject, valueType, recursionDepth, settings);
+    }
+
+    private static <T> Try<T> valueFromJsonWithReflection(
+        JSONObject jsonObject, Class<T> valueType, int recursionDepth, Settings settings) {
+      recordCall(null, valueType, settings);
+      return Try.of(() -> ClassMetadata.of(valueType))
+          .flatMapTry(
+              metadata -> parseObject(jsonObject, valueType, metadata, recursionDepth, settings));
+    }
+
+    /*
+     * Reads with the first of the strategies decided from the members of the type, and a later
+     * strategy only runs when the ones before it failed for this JSON, e.g. because a setter of a
+     * primitive has no value to set. Nothing is remembered between calls, so one payload never
+     * decides how the next is read. If no strategy succeeded, the failure of the first one is
+     * returned, as it is the one the type is meant to be read with.
+     */
+    private static <T> Try<T> parseObject(
+        JSONObject jsonObject, Class<T> valueType, ClassMetadata metadata, int recursionDepth, Settings settings) {
+      Try<T> firstFailure = null;
+      for (ReadStrategy strategy : metadata.readStrategies) {
+        Try<T> result = parseObject(jsonObject, valueType, strategy, recursionDepth, settings);
+        if (result.isSuccess()) {
+          return result;
+        }
+        if (firstFailure == null) {
+          firstFailure = result;
+        }
+      }
+      return firstFailure;
+    }
+
+    /* Reads with one strategy, reporting it to the metrics and Flight Recorder. */
+    private static <T> Try<T> parseObject(
+        JSONObject jsonObject, Class<T> valueType, ReadStrategy strategy, int recursionDepth, Settings settings) {
+      Try<T> result;
+      switch (strategy) {
+        case CONSTRUCTOR:
+          result = parseObjectWithConstructor(jsonObject, valueType, recursionDepth, settings);
+          break;
+        case SETTERS:
+          result = parseMutableObjectWithSetters(jsonObject, valueType, recursionDepth, settings);
+          break;
+        default:
+          result = parseObjectWithFields(jsonObject, valueType, recursionDepth, settings);
+      }
+      return Instrumentation.strategy(
+          settings,
+          Operation.READ,
+          valueType,
+          Instrumentation.strategy(strategy),
+          recursionDepth,
+          result);
     }
 
     static <T> Try<Void> populateInstanceFromJson(
-        JSONObject jsonObject, T object, Class<?> valueType, boolean changePrivateModifiersAllowed) {
-      return populateInstanceFromJson(jsonObject, object, valueType, 0, changePrivateModifiersAllowed);
+        JSONObject jsonObject, T object, Class<?> valueType, Settings settings) {
+      recordCall(object, valueType, settings);
+      return populateInstanceFromJson(jsonObject, object, valueType, 0, settings);
     }
 
     private static <T> Try<Void> populateInstanceFromJson(
-        JSONObject jsonObject, T object, Class<?> valueType, int recursionDepth, boolean changePrivateModifiersAllowed) {
-      return Try.of(() -> valueType)
+        JSONObject jsonObject, T object, Class<?> valueType, int recursionDepth, Settings settings) {
+      return Try.of(() -> ClassMetadata.of(valueType))
           .filterTry(
-              type -> type.getDeclaredAnnotation(JsonMapper.class) != null,
+              metadata -> metadata.hasJsonMapperAnnotation,
               () ->
                   new JsonMappingException(
                       "JSON-Z4R10OE60N",
-                      "The type '"
+                      () ->
+                          "The type '"
                           + Try.of(valueType::getName).getOrElse("")
                           + "' does not have the required annotation @JsonMapper."))
           .mapTry(
-              type ->
-                  List.of(type.getDeclaredMethods())
-                      .filter(method -> method.getName().startsWith("set"))
-                      .filter(method -> method.getParameterCount() == 1)
-                      .filter(method -> method.getReturnType().equals(Void.TYPE))
-                      .map(setter -> setValueFromJson(object, setter, jsonObject, recursionDepth, changePrivateModifiersAllowed)))
-          .filterTry(List::nonEmpty)
-          .filterTry(tryList -> tryList.forAll(Try::isSuccess))
-          .filterTry(list -> recursionDepth < Utils.MAX_RECURSION_DEPTH)
-          .flatMapTry(List::get);
+              metadata ->
+                  metadata.setters
+                      .map(setter -> setValueFromJson(object, setter, jsonObject, recursionDepth, settings)))
+          .filterTry(List::nonEmpty, noSetters)
+          // The first setter that failed, otherwise the first one.
+          .map(tryList -> tryList.find(Try::isFailure).getOrElse(tryList.head()))
+          .filterTry(_result -> recursionDepth < Utils.MAX_RECURSION_DEPTH, recursionDepthExceeded)
+          .flatMapTry(result -> result);
     }
 
     private static <T> Try<Void> setValueFromJson(
-        T object, Method setter, JSONObject jsonObject, int recursionDepth, boolean changePrivateModifiersAllowed) {
-      return Try.of(
-              () -> {
-                Map<String, Object> jsonMap = jsonObject.toMap();
-                String fieldName = Utils.parseFieldName(setter);
-                return jsonMap.get(fieldName);
-              })
+        T object, Property setter, JSONObject jsonObject, int recursionDepth, Settings settings) {
+      return Try.of(() -> ValueConverter.toJavaValue(jsonObject.opt(setter.name)))
           .flatMapTry(
               valueFromJson ->
-                  Try.run(
-                          () -> {
-                            Class<?> setterType = setter.getParameterTypes()[0];
-                            Object parsedValue =
-                                parseValue(setterType, valueFromJson, recursionDepth, changePrivateModifiersAllowed);
-                            setter.invoke(object, parsedValue);
-                          })
-                      .orElse(
-                          Try.run(
-                              () -> {
-                                if (valueFromJson == null) {
-                                  setter.invoke(object, (Object) null);
-                                }
-                              })));
+                  valueFromJson == null
+                      ? Try.run(() -> setter.setter(settings).set(object, null))
+                      : Try.of(
+                              () ->
+                                  parsePropertyValue(
+                                      setter, setter.type, valueFromJson, recursionDepth, settings))
+                          .flatMapTry(
+                              parsedValue ->
+                                  parsedValue
+                                      .filter(value -> isAssignable(setter.type, value))
+                                      .mapTry(
+                                          value -> {
+                                            setter.setter(settings).set(object, value);
+                                            return (Void) null;
+                                          })
+                                      // A value that cannot be set is ignored, a missing one fails
+                                      // for primitives.
+                                      .recover(_throwable -> null)));
+    }
+
+    /*
+     * RFC 7386: members of the patch replace properties, null members clear them, and objects are
+     * merged into nested @JsonMapper objects and maps in place. Members without a property are
+     * ignored. Every value is converted before the first property is set, so a patch that does not
+     * apply leaves the target as it was.
+     */
+    static Try<Void> applyMergePatch(Map<String, Object> patch, Object target, Settings settings) {
+      java.util.List<Assignment> assignments = new ArrayList<>();
+      return Try.run(() -> planMergePatch(patch, target, 0, settings, assignments))
+          .andThenTry(
+              () -> {
+                for (Assignment assignment : assignments) {
+                  assignment.property.setter(settings).set(assignment.target, assignment.value);
+                }
+              });
+    }
+
+    private static void planMergePatch(
+        Map<String, Object> patch,
+        Object target,
+        int recursionDepth,
+        Settings settings,
+        java.util.List<Assignment> assignments)
+        throws Throwable {
+      if (recursionDepth >= Utils.MAX_RECURSION_DEPTH) {
+        throw recursionDepthExceeded.get();
+      }
+      ClassMetadata metadata = ClassMetadata.of(target.getClass());
+      if (!metadata.hasJsonMapperAnnotation) {
+        throw new JsonMappingException(
+            "JSON-W2K7YF0QJD",
+            () ->
+                "The type '"
+                + target.getClass().getName()
+                + "' does not have the required annotation @JsonMapper.");
+      }
+      for (Map.Entry<String, Object> member : patch.entrySet()) {
+        String name = member.getKey();
+        Property property = metadata.settersByName.get(name);
+        if (property == null) {
+          property = metadata.fieldsByName.get(name);
+        }
+        if (property == null) {
+          continue;
+        }
+        Object value = member.getValue();
+        if (value == null) {
+          assignments.add(
+              new Assignment(target, property, Utils.primitiveDefaultValues.get(property.type)));
+          continue;
+        }
+        if (value instanceof Map) {
+          Object current = currentValue(metadata, name, target, settings);
+          if (current != null && property.converter.isNested()) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> nestedPatch = (Map<String, Object>) value;
+            planMergePatch(nestedPatch, current, recursionDepth + 1, settings, assignments);
+            continue;
+          } else if (current instanceof Map) {
+            value = mergeMap((Map<?, ?>) current, (Map<?, ?>) value);
+          }
+        }
+        Object converted = property.converter.convert(value, recursionDepth, settings);
+        if (converted == null || !isAssignable(property.type, converted)) {
+          throw new JsonMappingException(
+              "JSON-H5S0AZ8UVC",
+              () -> "The value of '" + name + "' in the merge patch does not apply to the property.");
+        }
+        assignments.add(new Assignment(target, property, converted));
+      }
+    }
+
+    /*
+     * The members of the patch put in a copy of the map, nulls removing them. The values are
+     * replaced, and converted with the rest of the map.
+     */
+    private static Map<String, Object> mergeMap(Map<?, ?> current, Map<?, ?> patch) {
+      Map<String, Object> merged = new HashMap<>();
+      current.forEach((key, value) -> merged.put(String.valueOf(key), value));
+      patch.forEach(
+          (key, value) -> {
+            if (value == null) {
+              merged.remove(String.valueOf(key));
+            } else {
+              merged.put(String.valueOf(key), value);
+            }
+          });
+      return merged;
+    }
+
+    /*
+     * The value of the property before the patch, or null if it cannot be read. The getter is used
+     * where there is one, since the field can only be read with private access.
+     */
+    private static Object currentValue(
+        ClassMetadata metadata, String name, Object target, Settings settings) {
+      return Option.of(metadata.gettersByName.get(name))
+          .flatMap(getter -> Try.of(() -> getter.getter(settings).get(target)).toOption())
+          .orElse(
+              () ->
+                  Option.of(metadata.fieldsByName.get(name))
+                      .flatMap(field -> Try.of(() -> field.getter(settings).get(target)).toOption()))
+          .getOrNull();
+    }
+
+    private static final class Assignment {
+      final Object target;
+      final Property property;
+      final Object value;
+
+      Assignment(Object target, Property property, Object value) {
+        this.target = target;
+        this.property = property;
+        this.value = value;
+      }
+    }
+
+    private static <T> Try<T> parseObjectWithGeneratedMapper(
+        JSONObject jsonObject, Class<T> valueType, GeneratedMapper<Object> mapper, int recursionDepth, Settings settings) {
+      return Try.success(mapper)
+          .filterTry(_mapper -> recursionDepth < Utils.MAX_RECURSION_DEPTH, recursionDepthExceeded)
+          .mapTry(_mapper -> mapper.fromJson(jsonObject, new MappingContext(recursionDepth, settings)))
+          .mapTry(valueType::cast)
+          .transform(
+              value ->
+                  Instrumentation.strategy(
+                      settings, Operation.READ, valueType, Strategy.GENERATED_MAPPER, recursionDepth, value));
     }
 
     private static <T> Try<T> parseMutableObjectWithSetters(
-        JSONObject jsonObject, Class<T> valueType, int recursionDepth, boolean changePrivateModifiersAllowed) {
+        JSONObject jsonObject, Class<T> valueType, int recursionDepth, Settings settings) {
       return Try.of(valueType::newInstance)
-          .filterTry(object -> recursionDepth < Utils.MAX_RECURSION_DEPTH)
+          .filterTry(object -> recursionDepth < Utils.MAX_RECURSION_DEPTH, recursionDepthExceeded)
           .mapTry(
               object -> {
-                populateInstanceFromJson(jsonObject, object, valueType, recursionDepth, changePrivateModifiersAllowed)
+                populateInstanceFromJson(jsonObject, object, valueType, recursionDepth, settings)
                     .getOrElseThrow(
                         throwable ->
                             new JsonMappingException(
@@ -252,65 +1140,74 @@ class Core {
     }
 
     private static <T> Try<T> parseObjectWithConstructor(
-        JSONObject jsonObject, Class<T> valueType, int recursionDepth, boolean changePrivateModifiersAllowed) {
-      return Try.of(
-              () -> {
-                List<Class<?>> fieldTypes =
-                    List.of(valueType.getDeclaredFields())
-                        .filter(field -> !field.getName().startsWith("this$"))
-                        .map(Field::getType);
-                return List.of(valueType.getConstructors())
-                    .filter(
-                        constructor ->
-                            List.of(constructor.getParameterTypes()).containsAll(fieldTypes))
-                    .get();
-              })
-          .mapTry(
-              constructor -> {
-                constructor.setAccessible(true);
-                return constructor;
-              })
-          .filterTry(constructor -> recursionDepth < Utils.MAX_RECURSION_DEPTH)
+        JSONObject jsonObject, Class<T> valueType, int recursionDepth, Settings settings) {
+      return Try.of(() -> ClassMetadata.of(valueType).creator.get())
+          .filterTry(creator -> recursionDepth < Utils.MAX_RECURSION_DEPTH, recursionDepthExceeded)
           .mapTry(
-              constructor ->
-                  constructor.newInstance(sortParameters(jsonObject, constructor, recursionDepth, changePrivateModifiersAllowed)))
+              creator ->
+                  creator.instantiator(settings).newInstance(bindParameters(jsonObject, creator, recursionDepth, settings)))
           .mapTry(valueType::cast);
     }
 
-    private static Object[] sortParameters(
-        JSONObject jsonObject, Constructor<?> constructor, int recursionDepth, boolean changePrivateModifiersAllowed) {
-      Map<String, Object> jsonMap = jsonObject.toMap();
-      List<Parameter> parameters = List.of(constructor.getParameters());
-      return parameters
-          .map(
-              parameter -> {
-                Class<?> parameterType = Utils.convertPrimitiveType(parameter.getType());
-                String parameterName =
-                    Option.of(parameter.getAnnotation(JsonProperty.class))
-                        .map(JsonProperty::value)
-                        .filter(value -> !value.isEmpty())
-                        .getOrElseThrow(
-                            () ->
-                                new JsonMappingException(
-                                    "JSON-CBVT9U637O",
-                                    "JsonProperty annotation in constructor required to construct immutable Java object from json."));
-                Object parameterValue =
-                    List.ofAll(jsonMap.keySet())
-                        .find(
-                            jsonKey -> {
-                              Class<?> jsonFieldType = jsonMap.get(jsonKey).getClass();
-                              return Utils.isTypeApplicableToParse(parameterType, jsonFieldType)
-                                  && jsonKey.equals(parameterName);
-                            })
-                        .map(jsonMap::get)
-                        .map(value -> parseValue(parameterType, value, recursionDepth, changePrivateModifiersAllowed))
-                        .getOrNull();
-                return parameterValue;
-              })
-          .toJavaArray();
+    /*
+     * Single pass over the JSON members, looking up the parameter of each by name. Parameters
+     * without a member, or with a value that does not apply to their type, keep their default.
+     */
+    private static Object[] bindParameters(
+        JSONObject jsonObject, Creator creator, int recursionDepth, Settings settings) throws Throwable {
+      requireNamedParameters(creator);
+      Object[] arguments = creator.newArguments();
+      for (String key : jsonObject.keySet()) {
+        int index = creator.parameterIndex(key);
+        if (index >= 0) {
+          arguments[index] =
+              creator.argument(
+                  index,
+                  convertProperty(
+                      creator.converter(index), jsonObject.opt(key), recursionDepth, settings));
+        }
+      }
+      return arguments;
+    }
+
+    private static void requireNamedParameters(Creator creator) {
+      if (!creator.hasNamedParameters) {
+        throw new JsonMappingException(
+            "JSON-CBVT9U637O",
+            "JsonProperty annotation in constructor required to construct immutable Java object from json.");
+      }
+    }
+
+    /* Values that cannot be set are skipped upfront, rather than failing in the setter. */
+    private static boolean isAssignable(Class<?> type, Object value) {
+      return value == null
+          ? !type.isPrimitive()
+          : Utils.convertPrimitiveType(type).isInstance(value);
+    }
+
+    /*
+     * Collections and maps are bound to the declared type of their elements. If an element cannot
+     * be bound, the whole value is left out rather than set with unconverted elements. A number out
+     * of range of the property is thrown, failing the read.
+     */
+    private static Try<Object> parsePropertyValue(
+        Property property, Class<?> type, Object value, int recursionDepth, Settings settings) {
+      if (property.converter.isContainer()) {
+        return Try.of(() -> property.converter.convert(value, recursionDepth, settings));
+      }
+      return Try.success(parseValue(type, value, recursionDepth, settings));
     }
 
-    private static Object parseValue(Class<?> parameterType, Object value, int recursionDepth, boolean changePrivateModifiersAllowed) {
+    /*
+     * Values that cannot be converted are passed on as they are, except numbers out of range of
+     * the property, which fail with JSON-QZNJUGUSS7 rather than be set to a wrapped-around value.
+     */
+    private static Object parseValue(Class<?> parameterType, Object value, int recursionDepth, Settings settings) {
+      if (value instanceof Number
+          && NumberConversion.isSupported(parameterType)
+          && Utils.isJavaLangNumber(value.getClass())) {
+        return NumberConversion.convert((Number) value, parameterType);
+      }
       return Try.of(
               () -> {
                 Class<?> valueType = Utils.convertPrimitiveType(value.getClass());
@@ -329,7 +1226,7 @@ class Core {
                       .getOrElse(value);
                 } else if (value instanceof HashMap) {
                   return Try.of(() -> new JSONObject((HashMap<?, ?>) value))
-                      .flatMapTry(json -> valueFromJson(json, parameterType, recursionDepth + 1, changePrivateModifiersAllowed))
+                      .flatMapTry(json -> valueFromJson(json, parameterType, recursionDepth + 1, settings))
                       .getOrElseThrow(
                           () ->
                               new JsonMappingException(
@@ -341,28 +1238,25 @@ class Core {
     }
 
     private static <T> Try<T> parseObjectWithFields(
-        JSONObject jsonObject, Class<T> valueType, int recursionDepth, boolean changePrivateModifiersAllowed) {
-      return Try.of(() -> valueType.getDeclaredConstructor().newInstance())
-          .filterTry(_instance -> recursionDepth < Utils.MAX_RECURSION_DEPTH)
-          .recoverWith(IllegalAccessException.class, Utils.invokePrivateConstuctor(valueType))
+        JSONObject jsonObject, Class<T> valueType, int recursionDepth, Settings settings) {
+      return instantiate(valueType, settings)
+          .filterTry(_instance -> recursionDepth < Utils.MAX_RECURSION_DEPTH, recursionDepthExceeded)
           .mapTry(
               instance -> {
-                List.of(valueType.getDeclaredFields())
-                    .forEach(
-                        field -> {
-                          String fieldName = Utils.parseFieldName(field);
-                          Object valueFromJson = jsonObject.get(fieldName);
-                          try {
-                            if(changePrivateModifiersAllowed) {
-                              Utils.makeFieldModifiable(field);
-                            }
-                            Class<?> fieldType = Utils.convertPrimitiveType(field.getType());
-                            Object parsedValue =
-                                parseValue(fieldType, valueFromJson, recursionDepth, changePrivateModifiersAllowed);
-                            field.set(instance, parsedValue);
-                          } catch (Exception ignored) {
-                          }
-                        });
+                for (Property property : ClassMetadata.of(valueType).fields) {
+                  if (!jsonObject.has(property.name)) {
+                    throw new JsonMappingException(
+                        "JSON-FF250T5XGZ",
+                        () -> "The member '" + property.name + "' is missing from the JSON object.");
+                  }
+                  Class<?> fieldType = Utils.convertPrimitiveType(property.type);
+                  parsePropertyValue(
+                          property, fieldType, jsonObject.get(property.name), recursionDepth, settings)
+                      .filter(parsedValue -> isAssignable(property.type, parsedValue))
+                      .forEach(
+                          parsedValue ->
+                              Try.run(() -> property.setter(settings).set(instance, parsedValue)));
+                }
                 return instance;
               });
     }
@@ -0,0 +1,66 @@
+package com.kantegasso.jsonmapping;
+
+import com.kantegasso.jsonmapping.MappingMetrics.Operation;
+import com.kantegasso.jsonmapping.MappingMetrics.Strategy;
+
+/**
+ * Emits a <code>com.kantegasso.jsonmapping.Mapping</code> event per read and write while a flight
+ * recording has the event enabled. The event is disabled by default, so a recording must enable it
+ * in its settings. Until then mapping only reads a flag.
+ *
+ * <p>The event is MappingEvent in <code>src/main/jfr</code>, which is only compiled when building
+ * on Java 11 or later, as it extends <code>jdk.jfr.Event</code>. It is loaded by name, so a build
+ * without it, or a runtime without <code>jdk.jfr</code> (Java 8 before 8u262), emits no events.
+ */
+final class FlightRecording {
+
+  /** What MappingEvent does for a call, see there. */
+  interface Recorder {
+    boolean isEnabled();
+
+    void begin();
+
+    void strategyUsed(Strategy strategy, int recursionDepth);
+
+    void end(Operation operation, Class<?> type, long bytes, Throwable cause);
+  }
+
+  private static final String RECORDER = "com.kantegasso.jsonmapping.MappingEvent$EventRecorder";
+
+  private static final Recorder recorder = load();
+
+  private FlightRecording() {}
+
+  static boolean isEnabled() {
+    return recorder != null && recorder.isEnabled();
+  }
+
+  /** Begins the event of a call, unless it is nested in a call on the same thread. */
+  static void begin() {
+    recorder.begin();
+  }
+
+  static void strategyUsed(Strategy strategy, int recursionDepth) {
+    recorder.strategyUsed(strategy, recursionDepth);
+  }
+
+  /** Commits the event of the call if it was begun and the recording still wants it. */
+  static void end(Operation operation, Class<?> type, long bytes, Throwable cause) {
+    if (recorder != null) {
+      recorder.end(operation, type, bytes, cause);
+    }
+  }
+
+  private static Recorder load() {
+    ClassLoader loader = FlightRecording.class.getClassLoader();
+    try {
+      Class.forName("jdk.jfr.Event", false, loader);
+      Recorder loaded =
+          (Recorder) Class.forName(RECORDER, true, loader).getDeclaredConstructor().newInstance();
+      loaded.isEnabled();
+      return loaded;
+    } catch (ReflectiveOperationException | LinkageError | RuntimeException _e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package com.kantegasso.jsonmapping;
+
+import org.json.JSONObject;
+
+/**
+ * Maps one @JsonMapper type without reflection. Implementations are generated at compile time by
+ * {@link com.kantegasso.jsonmapping.processor.JsonMapperProcessor} as <code>TypeJsonMapper</code>
+ * in the package of the type, and {@link JsonMapping} uses them in preference to reflection.
+ */
+public interface GeneratedMapper<T> {
+
+  JSONObject toJson(T object, MappingContext context) throws Exception;
+
+  T fromJson(JSONObject json, MappingContext context) throws Exception;
+}
@@ -0,0 +1,142 @@
+package com.kantegasso.jsonmapping;
+
+import com.kantegasso.jsonmapping.ClassMetadata.ReadStrategy;
+import com.kantegasso.jsonmapping.MappingMetrics.Operation;
+import com.kantegasso.jsonmapping.MappingMetrics.Strategy;
+import io.vavr.control.Try;
+import java.nio.file.Path;
+import java.util.function.ToLongFunction;
+
+/**
+ * Reports mapping operations to the {@link MappingMetrics} of the settings and, while a flight
+ * recording has them enabled, as {@link FlightRecording} events. Every method returns straight away
+ * when neither is on, so unmeasured mapping only pays a null check and a flag read.
+ */
+final class Instrumentation {
+
+  static final long UNKNOWN_SIZE = -1;
+
+  private Instrumentation() {}
+
+  /**
+   * The start time of a call, read from the clock only when it is measured. 0 when it is not, so
+   * {@link #record} knows whether a flight recorder event was begun.
+   */
+  static long start(Settings settings) {
+    if (FlightRecording.isEnabled()) {
+      FlightRecording.begin();
+      return System.nanoTime();
+    }
+    return settings.metrics == null ? 0 : System.nanoTime();
+  }
+
+  static <T> Try<T> record(
+      Settings settings, Operation operation, Class<?> type, long start, Try<T> result, long bytes) {
+    Class<?> recordedType = type != null ? type : Object.class;
+    if (settings.metrics != null) {
+      long nanos = System.nanoTime() - start;
+      if (result.isSuccess()) {
+        settings.metrics.completed(operation, recordedType, nanos, bytes);
+      } else {
+        settings.metrics.failed(operation, recordedType, nanos, result.getCause());
+      }
+    }
+    if (start != 0) {
+      FlightRecording.end(
+          operation, recordedType, bytes, result.isFailure() ? result.getCause() : null);
+    }
+    return result;
+  }
+
+  /** Like the above, with the size taken from the result, e.g. the length of written bytes. */
+  static <T> Try<T> record(
+      Settings settings,
+      Operation operation,
+      Class<?> type,
+      long start,
+      Try<T> result,
+      ToLongFunction<? super T> bytes) {
+    if (start != 0) {
+      record(
+          settings,
+          operation,
+          type,
+          start,
+          result,
+          result.isSuccess() ? bytes.applyAsLong(result.get()) : UNKNOWN_SIZE);
+    }
+    return result;
+  }
+
+  static <T> Try<T> strategy(
+      Settings settings,
+      Operation operation,
+      Class<?> type,
+      Strategy strategy,
+      int recursionDepth,
+      Try<T> result) {
+    if (result.isSuccess()) {
+      strategyUsed(settings, operation, type, strategy, recursionDepth);
+    }
+    return result;
+  }
+
+  static void strategyUsed(
+      Settings settings, Operation operation, Class<?> type, Strategy strategy, int recursionDepth) {
+    if (settings.metrics != null) {
+      settings.metrics.strategyUsed(operation, type, strategy);
+    }
+    if (FlightRecording.isEnabled()) {
+      FlightRecording.strategyUsed(strategy, recursionDepth);
+    }
+  }
+
+  static Strategy strategy(ReadStrategy strategy) {
+    switch (strategy) {
+      case CONSTRUCTOR:
+        return Strategy.CONSTRUCTOR;
+      case SETTERS:
+        return Strategy.SETTERS;
+      default:
+        return Strategy.FIELDS;
+    }
+  }
+
+  /** The size of the text as UTF-8, counted only when it is measured. */
+  static long utf8Length(Settings settings, CharSequence text) {
+    return !isMeasured(settings) || text == null ? UNKNOWN_SIZE : utf8Length(text);
+  }
+
+  static long fileSize(Settings settings, Path path) {
+    return isMeasured(settings) ? path.toFile().length() : UNKNOWN_SIZE;
+  }
+
+  private static boolean isMeasured(Settings settings) {
+    return settings.metrics != null || FlightRecording.isEnabled();
+  }
+
+  static long utf8Length(CharSequence text) {
+    long length = 0;
+    for (int index = 0; index < text.length(); index++) {
+      char c = text.charAt(index);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isLowSurrogate(c)) {
+        // Unpaired, encoded as '?'.
+        length++;
+      } else if (Character.isHighSurrogate(c)
+          && index + 1 < text.length()
+          && Character.isLowSurrogate(text.charAt(index + 1))) {
+        length += 4;
+        index++;
+      } else if (Character.isHighSurrogate(c)) {
+        length++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+}
@@ -1,13 +1,30 @@
 package com.kantegasso.jsonmapping;
 
+import com.kantegasso.jsonmapping.MappingMetrics.Operation;
 import io.vavr.control.Try;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 
@@ -18,13 +35,70 @@ import org.json.JSONTokener;
  */
 public class JsonMapping {
 
-  private boolean changePrivateModifiersAllowed = false;
+  private final Settings settings;
   public final Write write = new Write();
   public final Read read = new Read();
-  public JsonMapping() { }
+  public JsonMapping() {
+    this.settings = Settings.DEFAULT;
+  }
 
   public JsonMapping(boolean changePrivateModifiersAllowed) {
-    this.changePrivateModifiersAllowed = changePrivateModifiersAllowed;
+    this.settings = Settings.of(changePrivateModifiersAllowed);
+  }
+
+  public JsonMapping(boolean changePrivateModifiersAllowed, AccessorStrategy accessorStrategy) {
+    this.settings =
+        new Settings(
+            changePrivateModifiersAllowed,
+            accessorStrategy,
+            Settings.NO_PROMOTION,
+            Parser.ORG_JSON,
+            null);
+  }
+
+  /**
+   * Types start out with the given accessor strategy, and are promoted to accessors compiled with
+   * {@link AccessorStrategy#LAMBDA_METAFACTORY} once they have been mapped <code>
+   * promotionThreshold</code> times. Promotion is shared by all instances. A threshold of 0 turns
+   * promotion off, which is what the other constructors use, so they keep the accessor strategy
+   * they are given.
+   */
+  public JsonMapping(
+      boolean changePrivateModifiersAllowed,
+      AccessorStrategy accessorStrategy,
+      int promotionThreshold) {
+    this.settings =
+        new Settings(
+            changePrivateModifiersAllowed,
+            accessorStrategy,
+            promotionThreshold,
+            Parser.ORG_JSON,
+            null);
+  }
+
+  /** Like the constructor above, parsing JSON text with the given parser. */
+  public JsonMapping(
+      boolean changePrivateModifiersAllowed,
+      AccessorStrategy accessorStrategy,
+      int promotionThreshold,
+      Parser parser) {
+    this.settings =
+        new Settings(
+            changePrivateModifiersAllowed, accessorStrategy, promotionThreshold, parser, null);
+  }
+
+  /**
+   * Mapping metadata is cached per class and shared by all instances. It is held by the class
+   * itself, so the types of a discarded class loader, e.g. of an uninstalled plugin, are collected
+   * with it. Clearing is only needed to measure or reset the cache.
+   */
+  public static void clearCachedTypes() {
+    ClassMetadata.clear();
+  }
+
+  /** The cached types that have been promoted to compiled accessors, with their call counts. */
+  public static Map<Class<?>, Integer> promotedTypes() {
+    return ClassMetadata.promotedTypes();
   }
 
   @Retention(RetentionPolicy.RUNTIME)
@@ -37,15 +111,102 @@ public class JsonMapping {
   @Target({ElementType.TYPE})
   public @interface JsonMapper {}
 
+  /** How properties, setters and constructors of mapped types are invoked. */
+  public enum AccessorStrategy {
+    /** Method.invoke, Field.get/set and Constructor.newInstance. The default. */
+    REFLECTION,
+    /** Method handles, compiled once per property. */
+    METHOD_HANDLES,
+    /**
+     * Getters and setters compiled to classes calling them directly with LambdaMetafactory, so the
+     * JIT can inline them. Members it cannot link fall back to method handles.
+     */
+    LAMBDA_METAFACTORY
+  }
+
+  /** How the Read methods taking a JSON String parse it. */
+  public enum Parser {
+    /** JSONObject and JSONArray, which are lenient about the JSON they accept. The default. */
+    ORG_JSON,
+    /**
+     * The streaming reader used for streams and files, binding the text as it is parsed without
+     * building a JSONObject. Strict RFC 8259, and like streams, binds a type with its first read
+     * strategy only.
+     */
+    STREAMING
+  }
+
+  private JsonMapping(Settings settings) {
+    this.settings = settings;
+  }
+
+  /**
+   * A JsonMapping with the same options, reporting its operations to the listener. Mapping without
+   * a listener is not measured at all.
+   */
+  public JsonMapping withMetrics(MappingMetrics metrics) {
+    return new JsonMapping(settings.withMetrics(metrics));
+  }
+
+  private <T> Try<T> recordWrite(Class<?> type, long start, Try<T> result, long bytes) {
+    return Instrumentation.record(settings, Operation.WRITE, type, start, result, bytes);
+  }
+
+  private <T> Try<T> recordRead(Class<?> type, long start, Try<T> result, long bytes) {
+    return Instrumentation.record(settings, Operation.READ, type, start, result, bytes);
+  }
+
   public class Write {
     public Write() {}
 
     public <T> Try<JSONObject> objectAsJson(T object) {
-      return Core.Write.objectAsJson(object, changePrivateModifiersAllowed);
+      long start = Instrumentation.start(settings);
+      return recordWrite(
+          object.getClass(),
+          start,
+          Core.Write.objectAsJson(object, settings),
+          Instrumentation.UNKNOWN_SIZE);
     }
 
     public <T> Try<JSONObject> objectAsJson(T object, Class<?> declaredType) {
-      return Core.Write.objectAsJson(object, declaredType, changePrivateModifiersAllowed);
+      long start = Instrumentation.start(settings);
+      return recordWrite(
+          declaredType,
+          start,
+          Core.Write.objectAsJson(object, declaredType, settings),
+          Instrumentation.UNKNOWN_SIZE);
+    }
+
+    /**
+     * Writes the objects as a JSON array. The element type is resolved once, so large lists do not
+     * repeat the per-type setup for every element. Fails if any element cannot be written.
+     */
+    public <T> Try<JSONArray> listAsJsonArray(Iterable<T> values, Class<T> elementType) {
+      long start = Instrumentation.start(settings);
+      return recordWrite(
+          elementType,
+          start,
+          Core.Write.listAsJsonArray(values, elementType, settings),
+          Instrumentation.UNKNOWN_SIZE);
+    }
+
+    /**
+     * The minimal JSON Merge Patch (RFC 7386) that {@link Read#applyMergePatch(JSONObject, Object)}
+     * applies to <code>before</code> to make it write as <code>after</code>. Both are written as
+     * the type of <code>before</code>. Properties that became null are null in the patch.
+     */
+    public <T> Try<JSONObject> diff(T before, T after) {
+      long start = Instrumentation.start(settings);
+      Class<?> type = before == null ? null : before.getClass();
+      return recordWrite(
+          type,
+          start,
+          Core.Write.objectAsJson(before, type, settings)
+              .flatMap(
+                  beforeJson ->
+                      Core.Write.objectAsJson(after, type, settings)
+                          .map(afterJson -> Core.Write.mergePatch(beforeJson, afterJson))),
+          Instrumentation.UNKNOWN_SIZE);
     }
 
     public Try<JSONObject> stringAsJson(String value) {
@@ -57,53 +218,368 @@ public class JsonMapping {
     }
 
     public <T> Try<String> objectAsJsonString(T object) {
-      return Core.Write.objectAsJson(object, changePrivateModifiersAllowed)
-        .mapTry(JSONObject::toString);
+      return objectAsJsonString(object, object.getClass());
     }
 
     public <T> Try<String> objectAsJsonString(T object, Class<?> declaredType) {
-      return Core.Write.objectAsJson(object, declaredType, changePrivateModifiersAllowed)
-        .mapTry(JSONObject::toString);
+      long start = Instrumentation.start(settings);
+      return Instrumentation.record(
+          settings,
+          Operation.WRITE,
+          declaredType,
+          start,
+          Core.Write.objectAsJson(object, declaredType, settings).mapTry(JSONObject::toString),
+          Instrumentation::utf8Length);
     }
 
     public Try<String> mapAsJsonString(Map<?, ?> value) {
       return Try.of(() -> new JSONObject(value))
         .mapTry(JSONObject::toString);
     }
+
+    /**
+     * Writes the object as JSON directly to the writer, without building a JSONObject first. The
+     * writer is flushed but not closed. On failure, part of the object may have been written.
+     */
+    public <T> Try<Void> objectToWriter(T object, Writer writer) {
+      return objectToWriter(object, object.getClass(), writer);
+    }
+
+    public <T> Try<Void> objectToWriter(T object, Class<?> declaredType, Writer writer) {
+      long start = Instrumentation.start(settings);
+      return recordWrite(
+          declaredType,
+          start,
+          Core.Write.writeObject(object, declaredType, new JsonWriter(writer), settings),
+          Instrumentation.UNKNOWN_SIZE);
+    }
+
+    /**
+     * Writes the objects as a JSON array directly to the writer, each as its own type. The writer is
+     * flushed but not closed. On failure, part of the array may have been written.
+     */
+    public <T> Try<Void> writeArray(Iterator<T> values, Writer writer) {
+      long start = Instrumentation.start(settings);
+      return recordWrite(
+          null,
+          start,
+          Core.Write.writeArray(values, null, new JsonWriter(writer), settings),
+          Instrumentation.UNKNOWN_SIZE);
+    }
+
+    public <T> Try<Void> writeArray(Iterator<T> values, Class<T> elementType, Writer writer) {
+      long start = Instrumentation.start(settings);
+      return recordWrite(
+          elementType,
+          start,
+          Core.Write.writeArray(values, elementType, new JsonWriter(writer), settings),
+          Instrumentation.UNKNOWN_SIZE);
+    }
+
+    /**
+     * Writes the objects as UTF-8 encoded, newline-delimited JSON (JSON Lines), one object per line.
+     * A parallel stream is encoded in parallel, and written in encounter order unless it is
+     * unordered. Writing stops at the first object that cannot be written. The output stream is
+     * flushed but not closed.
+     */
+    public <T> Try<Void> ndjson(Stream<T> values, OutputStream stream) {
+      return Try.of(
+              () -> new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)))
+          .flatMapTry(writer -> Core.Write.writeNdjson(values, writer, settings));
+    }
+
+    /**
+     * Writes the object as UTF-8 encoded JSON bytes, e.g. for an HTTP body. The JSON is encoded
+     * straight to bytes in a buffer reused by the thread, without building a String first.
+     */
+    public <T> Try<byte[]> objectAsBytes(T object) {
+      return objectAsBytes(object, object.getClass());
+    }
+
+    public <T> Try<byte[]> objectAsBytes(T object, Class<?> declaredType) {
+      long start = Instrumentation.start(settings);
+      return Instrumentation.record(
+          settings,
+          Operation.WRITE,
+          declaredType,
+          start,
+          Core.Write.objectAsBytes(object, declaredType, settings),
+          bytes -> bytes.length);
+    }
+
+    /**
+     * Writes the object as UTF-8 encoded JSON into the buffer at its position, and returns the
+     * number of bytes written. Fails without writing anything if the JSON does not fit.
+     */
+    public <T> Try<Integer> objectTo(T object, ByteBuffer buffer) {
+      return objectTo(object, object.getClass(), buffer);
+    }
+
+    public <T> Try<Integer> objectTo(T object, Class<?> declaredType, ByteBuffer buffer) {
+      long start = Instrumentation.start(settings);
+      return Instrumentation.record(
+          settings,
+          Operation.WRITE,
+          declaredType,
+          start,
+          Core.Write.objectTo(object, declaredType, buffer, settings),
+          Integer::longValue);
+    }
+
+    /** Writes the object as UTF-8 encoded JSON. The stream is flushed but not closed. */
+    public <T> Try<Void> objectToStream(T object, OutputStream stream) {
+      return objectToStream(object, object.getClass(), stream);
+    }
+
+    public <T> Try<Void> objectToStream(T object, Class<?> declaredType, OutputStream stream) {
+      return Try.of(
+              () -> new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)))
+          .flatMapTry(writer -> objectToWriter(object, declaredType, writer));
+    }
   }
 
   public class Read {
 
     public Read() {}
     public <T> Try<T> valueFromJson(JSONObject json, Class<T> valueType) {
-      return Core.Read.valueFromJson(json, valueType, changePrivateModifiersAllowed);
+      long start = Instrumentation.start(settings);
+      return recordRead(
+          valueType,
+          start,
+          Core.Read.valueFromJson(json, valueType, settings),
+          Instrumentation.UNKNOWN_SIZE);
     }
 
     public <T> Try<T> valueFromJson(String jsonValue, Class<T> valueType) {
-      return write.stringAsJson(jsonValue)
-          .flatMapTry(json -> Core.Read.valueFromJson(json, valueType, changePrivateModifiersAllowed));
+      long start = Instrumentation.start(settings);
+      Try<T> value =
+          settings.parser == Parser.STREAMING
+              ? Try.of(() -> new JsonReader(jsonValue))
+                  .flatMapTry(reader -> Core.Read.valueFromReader(reader, valueType, settings))
+              : write
+                  .stringAsJson(jsonValue)
+                  .flatMapTry(json -> Core.Read.valueFromJson(json, valueType, settings));
+      return recordRead(
+          valueType, start, value, Instrumentation.utf8Length(settings, jsonValue));
+    }
+
+    /**
+     * Reads UTF-8 encoded JSON from the stream and binds it to the type as it is read, without
+     * building a JSONObject. The stream is not closed.
+     */
+    public <T> Try<T> valueFromStream(InputStream stream, Class<T> valueType) {
+      return valueFromReader(new InputStreamReader(stream, StandardCharsets.UTF_8), valueType);
+    }
+
+    public <T> Try<T> valueFromReader(Reader reader, Class<T> valueType) {
+      long start = Instrumentation.start(settings);
+      return recordRead(
+          valueType,
+          start,
+          Core.Read.valueFromReader(new JsonReader(reader), valueType, settings),
+          Instrumentation.UNKNOWN_SIZE);
+    }
+
+    /**
+     * Reads a UTF-8 encoded file through a memory mapping of it, binding the JSON to the type as it
+     * is decoded. The file is closed when read.
+     */
+    public <T> Try<T> valueFromFile(Path path, Class<T> valueType) {
+      long start = Instrumentation.start(settings);
+      return recordRead(
+          valueType,
+          start,
+          Try.withResources(() -> new MappedFileReader(path))
+              .of(
+                  reader ->
+                      Core.Read.valueFromReader(new JsonReader(reader), valueType, settings).get()),
+          Instrumentation.fileSize(settings, path));
+    }
+
+    /**
+     * Reads only the properties of the type, scanning over other members, and the values nested in
+     * them, by matching brackets without building strings or maps for them. Skipped values are only
+     * checked to be balanced. Uses the streaming parser regardless of the parser setting, and not
+     * the generated mapper of the type.
+     */
+    public <T> Try<Projection<T>> projectFromJson(String jsonValue, Class<T> valueType) {
+      return projectFromJson(jsonValue, valueType, null);
+    }
+
+    /**
+     * Like the above, binding only the named properties. The others keep their default value, so a
+     * constructor must accept null for them. Fails if the type has no such property.
+     */
+    public <T> Try<Projection<T>> projectFromJson(
+        String jsonValue, Class<T> valueType, Set<String> properties) {
+      long start = Instrumentation.start(settings);
+      return recordRead(
+          valueType,
+          start,
+          Try.of(() -> new JsonReader(jsonValue))
+              .flatMapTry(
+                  reader ->
+                      Core.Read.projectionFromReader(reader, valueType, properties, settings)),
+          Instrumentation.utf8Length(settings, jsonValue));
+    }
+
+    /**
+     * A view of a JSON object as the @JsonMapper interface. Only where each property is in the JSON
+     * is indexed upfront. A property is decoded when its getter is first called, and the value is
+     * cached, so code that only looks at a few properties skips decoding the others. Decoding
+     * failures are thrown from the getter as a JsonMappingException. Uses the streaming parser
+     * regardless of the parser setting.
+     */
+    public <I> Try<I> lazyView(String jsonValue, Class<I> viewType) {
+      long start = Instrumentation.start(settings);
+      return recordRead(
+          viewType,
+          start,
+          LazyView.of(jsonValue, viewType, settings),
+          Instrumentation.utf8Length(settings, jsonValue));
+    }
+
+    /** Like the above, with the JSON UTF-8 encoded. */
+    public <I> Try<I> lazyView(byte[] json, Class<I> viewType) {
+      long start = Instrumentation.start(settings);
+      return recordRead(
+          viewType,
+          start,
+          LazyView.of(json, viewType, settings),
+          json == null ? Instrumentation.UNKNOWN_SIZE : json.length);
+    }
+
+    /** Reads a JSON array of objects. Fails if any element cannot be read. */
+    public <T> Try<List<T>> listFromJson(String jsonValue, Class<T> elementType) {
+      long start = Instrumentation.start(settings);
+      Try<List<T>> values =
+          settings.parser == Parser.STREAMING
+              ? Try.of(() -> new JsonReader(jsonValue))
+                  .flatMapTry(reader -> Core.Read.listFromReader(reader, elementType, settings))
+              : Try.of(() -> new JSONArray(jsonValue))
+                  .flatMapTry(
+                      jsonArray -> Core.Read.listFromJson(jsonArray, elementType, settings));
+      return recordRead(
+          elementType, start, values, Instrumentation.utf8Length(settings, jsonValue));
+    }
+
+    public <T> Try<List<T>> listFromJson(JSONArray jsonArray, Class<T> elementType) {
+      long start = Instrumentation.start(settings);
+      return recordRead(
+          elementType,
+          start,
+          Core.Read.listFromJson(jsonArray, elementType, settings),
+          Instrumentation.UNKNOWN_SIZE);
+    }
+
+    /**
+     * Reads a UTF-8 encoded JSON array of objects from the stream, binding each element as it is
+     * read. The stream is not closed.
+     */
+    public <T> Try<List<T>> listFromStream(InputStream stream, Class<T> elementType) {
+      return listFromReader(new InputStreamReader(stream, StandardCharsets.UTF_8), elementType);
+    }
+
+    public <T> Try<List<T>> listFromReader(Reader reader, Class<T> elementType) {
+      long start = Instrumentation.start(settings);
+      return recordRead(
+          elementType,
+          start,
+          Core.Read.listFromReader(new JsonReader(reader), elementType, settings),
+          Instrumentation.UNKNOWN_SIZE);
+    }
+
+    /**
+     * Reads a UTF-8 encoded JSON array of objects one element at a time, so arrays larger than the
+     * heap can be read. Iteration ends after the first element that fails. The stream is not
+     * closed.
+     */
+    public <T> Iterator<Try<T>> iterateArray(InputStream stream, Class<T> elementType) {
+      return iterateArray(new InputStreamReader(stream, StandardCharsets.UTF_8), elementType);
+    }
+
+    public <T> Iterator<Try<T>> iterateArray(Reader reader, Class<T> elementType) {
+      return Core.Read.iterateArray(new JsonReader(reader), elementType, settings);
+    }
+
+    /**
+     * Reads UTF-8 encoded, newline-delimited JSON (JSON Lines), one object per line, as the stream
+     * is consumed. Blank lines are skipped. Make the stream parallel to decode chunks of lines on the
+     * common ForkJoinPool, and use forEachOrdered or collect to keep the input order. The input
+     * stream is not closed.
+     */
+    public <T> Stream<Try<T>> ndjson(InputStream stream, Class<T> valueType) {
+      return Core.Read.ndjson(
+          new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)).lines(),
+          valueType,
+          settings);
+    }
+
+    /** Like {@link #ndjson(InputStream, Class)}. The file is closed with the returned stream. */
+    public <T> Try<Stream<Try<T>>> ndjson(Path path, Class<T> valueType) {
+      return Try.of(() -> Files.lines(path, StandardCharsets.UTF_8))
+          .map(lines -> Core.Read.ndjson(lines, valueType, settings));
+    }
+
+    /**
+     * Applies a JSON Merge Patch (RFC 7386) to the object in place. Only the properties named in
+     * the patch are set: null clears a property, and an object is merged into the nested
+     * @JsonMapper object or map it names, unless that is null. Every value is converted before the
+     * first property is set, so a patch that does not apply leaves the object as it was.
+     */
+    public <T> Try<Void> applyMergePatch(JSONObject patch, T target) {
+      long start = Instrumentation.start(settings);
+      return recordRead(
+          target == null ? null : target.getClass(),
+          start,
+          Try.of(patch::toMap)
+              .flatMap(members -> Core.Read.applyMergePatch(members, target, settings)),
+          Instrumentation.UNKNOWN_SIZE);
+    }
+
+    /** Like the above, reading the UTF-8 encoded patch from the stream, which is not closed. */
+    public <T> Try<Void> applyMergePatch(InputStream patch, T target) {
+      long start = Instrumentation.start(settings);
+      return recordRead(
+          target == null ? null : target.getClass(),
+          start,
+          Try.of(() -> new JsonReader(new InputStreamReader(patch, StandardCharsets.UTF_8)))
+              .flatMap(Core.Read::mapFromReader)
+              .flatMap(members -> Core.Read.applyMergePatch(members, target, settings)),
+          Instrumentation.UNKNOWN_SIZE);
     }
 
     public <T> Try<Void> populateInstanceFromJson(JSONObject jsonObject, T object) {
-      return Core.Read.populateInstanceFromJson(jsonObject, object, object.getClass(), changePrivateModifiersAllowed);
+      return populateInstanceFromJson(jsonObject, object, object.getClass());
     }
 
     public <T> Try<Void> populateInstanceFromJson(
         JSONObject jsonObject, T object, Class<?> type) {
-      return Core.Read.populateInstanceFromJson(jsonObject, object, type, changePrivateModifiersAllowed);
+      long start = Instrumentation.start(settings);
+      return recordRead(
+          type,
+          start,
+          Core.Read.populateInstanceFromJson(jsonObject, object, type, settings),
+          Instrumentation.UNKNOWN_SIZE);
     }
 
     public Try<Map<String, ?>> mapFromJson(String jsonValue) {
+      if (settings.parser == Parser.STREAMING) {
+        return Try.narrow(objectMapFromJson(jsonValue));
+      }
       return write.stringAsJson(jsonValue).flatMapTry(this::mapFromJsonObject);
     }
 
+    /** Reads a UTF-8 encoded file through a memory mapping of it. The file is closed when read. */
     public Try<JSONObject> jsonObjectFromFile(File file) {
-      return Try.of(() -> new FileInputStream(file))
-          .mapTry(JSONTokener::new)
-          .mapTry(JSONObject::new);
+      return Try.withResources(() -> new MappedFileReader(file.toPath()))
+          .of(reader -> new JSONObject(new JSONTokener(reader)));
     }
 
     public Try<Map<String, Object>> objectMapFromJson(String jsonValue) {
+      if (settings.parser == Parser.STREAMING) {
+        return Try.of(() -> new JsonReader(jsonValue)).flatMapTry(Core.Read::mapFromReader);
+      }
       return write.stringAsJson(jsonValue).flatMapTry(this::objectMapFromJson);
     }
 
@@ -116,6 +592,9 @@ public class JsonMapping {
     }
 
     public Try<Map<String, String>> stringMapFromJson(String jsonValue) {
+      if (settings.parser == Parser.STREAMING) {
+        return objectMapFromJson(jsonValue).mapTry(Utils::convertToStringValues);
+      }
       return Try.of(() -> new JSONObject(jsonValue))
           .flatMapTry(this::mapFromJsonObject)
           .mapTry(Utils::convertToStringValues);
@@ -0,0 +1,626 @@
+package com.kantegasso.jsonmapping;
+
+import com.kantegasso.jsonmapping.error.JsonMappingException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONObject;
+
+/**
+ * Pull tokenizer reading JSON incrementally from a {@link Reader}. Only the current token is held in
+ * memory, so values can be bound to objects as they arrive. Numbers are converted the same way as
+ * <code>org.json</code> converts them, and {@link #nextValue()} returns the same Java types as
+ * <code>JSONObject.toMap()</code>.
+ *
+ * <p>Unlike <code>org.json</code>, the reader is strict RFC 8259: numbers must match the JSON
+ * grammar, and single quotes, unquoted names, trailing commas and comments are rejected. Numbers are
+ * validated as they are read, but only converted when they are used.
+ */
+final class JsonReader {
+
+  enum Token {
+    BEGIN_OBJECT,
+    END_OBJECT,
+    BEGIN_ARRAY,
+    END_ARRAY,
+    NAME,
+    STRING,
+    NUMBER,
+    BOOLEAN,
+    NULL,
+    END_DOCUMENT
+  }
+
+  private static final int EMPTY_DOCUMENT = 0;
+  private static final int NONEMPTY_DOCUMENT = 1;
+  private static final int EMPTY_OBJECT = 2;
+  private static final int NONEMPTY_OBJECT = 3;
+  private static final int DANGLING_NAME = 4;
+  private static final int EMPTY_ARRAY = 5;
+  private static final int NONEMPTY_ARRAY = 6;
+
+  private final Reader in;
+  private char[] buffer;
+  private int pos = 0;
+  private int limit = 0;
+
+  private int[] scopes = new int[32];
+  private int scopeSize = 1;
+
+  private Token peeked;
+  private String peekedNumber;
+  private boolean peekedBoolean;
+  private final StringBuilder text = new StringBuilder();
+  private boolean skipByBrackets = false;
+  private long skippedBytes = 0;
+  private int valueStart = 0;
+
+  JsonReader(Reader in) {
+    this.in = in;
+    this.buffer = new char[8192];
+    scopes[0] = EMPTY_DOCUMENT;
+  }
+
+  /**
+   * Reads the characters of the string, copied once into the buffer, so it is never refilled and
+   * names are matched in place.
+   */
+  JsonReader(String json) {
+    this.in = null;
+    this.buffer = json.toCharArray();
+    this.limit = buffer.length;
+    scopes[0] = EMPTY_DOCUMENT;
+  }
+
+  /** Reads the characters in <code>chars[start, end)</code> in place. */
+  JsonReader(char[] chars, int start, int end) {
+    this.in = null;
+    this.buffer = chars;
+    this.pos = start;
+    this.limit = end;
+    scopes[0] = EMPTY_DOCUMENT;
+  }
+
+  Token peek() throws IOException {
+    if (peeked != null) {
+      return peeked;
+    }
+    int scope = scopes[scopeSize - 1];
+    switch (scope) {
+      case EMPTY_ARRAY:
+      case NONEMPTY_ARRAY:
+        {
+          scopes[scopeSize - 1] = NONEMPTY_ARRAY;
+          int c = nextNonWhitespace();
+          if (c == ']') {
+            return peeked = Token.END_ARRAY;
+          } else if (scope == NONEMPTY_ARRAY) {
+            expect(c == ',', "Expected ',' or ']'");
+          } else {
+            pos--;
+          }
+          return peeked = readValueToken();
+        }
+      case EMPTY_OBJECT:
+      case NONEMPTY_OBJECT:
+        {
+          int c = nextNonWhitespace();
+          if (c == '}') {
+            return peeked = Token.END_OBJECT;
+          } else if (scope == NONEMPTY_OBJECT) {
+            expect(c == ',', "Expected ',' or '}'");
+            c = nextNonWhitespace();
+          }
+          expect(c == '"', "Expected name");
+          scopes[scopeSize - 1] = DANGLING_NAME;
+          return peeked = Token.NAME;
+        }
+      case DANGLING_NAME:
+        expect(nextNonWhitespace() == ':', "Expected ':'");
+        scopes[scopeSize - 1] = NONEMPTY_OBJECT;
+        return peeked = readValueToken();
+      case EMPTY_DOCUMENT:
+        scopes[scopeSize - 1] = NONEMPTY_DOCUMENT;
+        return peeked = readValueToken();
+      default:
+        if (nextNonWhitespace() == -1) {
+          return peeked = Token.END_DOCUMENT;
+        }
+        pos--;
+        return peeked = readValueToken();
+    }
+  }
+
+  /**
+   * Makes {@link #skipValue()} scan over a value to the bracket closing it, instead of reading its
+   * tokens. Strings are stepped over so brackets in them do not count, but nothing is allocated and
+   * the skipped value is only checked to be balanced, not to be valid JSON.
+   */
+  JsonReader skippingByBrackets() {
+    skipByBrackets = true;
+    return this;
+  }
+
+  /** The UTF-8 encoded size of the values skipped so far, not counting the whitespace around them. */
+  long skippedBytes() {
+    return skippedBytes;
+  }
+
+  /**
+   * For a reader on a string or characters, the index in them where the value last skipped by
+   * bracket starts. It ends at {@link #position()}.
+   */
+  int valueStart() {
+    return valueStart;
+  }
+
+  /** For a reader on a string or characters, the index in them of the next character to read. */
+  int position() {
+    return pos;
+  }
+
+  boolean hasNext() throws IOException {
+    Token token = peek();
+    return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+  }
+
+  void beginObject() throws IOException {
+    consume(Token.BEGIN_OBJECT);
+    push(EMPTY_OBJECT);
+  }
+
+  void endObject() throws IOException {
+    consume(Token.END_OBJECT);
+    scopeSize--;
+  }
+
+  void beginArray() throws IOException {
+    consume(Token.BEGIN_ARRAY);
+    push(EMPTY_ARRAY);
+  }
+
+  void endArray() throws IOException {
+    consume(Token.END_ARRAY);
+    scopeSize--;
+  }
+
+  String nextName() throws IOException {
+    consume(Token.NAME);
+    return readString();
+  }
+
+  /**
+   * Reads the next name and looks it up in the table. A name without escapes that is held in the
+   * buffer is matched in place, so no String is created for it. Null if the name is not in the
+   * table.
+   */
+  <V> V nextName(NameTable<V> names) throws IOException {
+    consume(Token.NAME);
+    for (int end = pos; end < limit; end++) {
+      char c = buffer[end];
+      if (c == '"') {
+        V value = names.get(buffer, pos, end - pos);
+        pos = end + 1;
+        return value;
+      } else if (c == '\\' || c < 0x20) {
+        break;
+      }
+    }
+    return names.get(readString());
+  }
+
+  String nextString() throws IOException {
+    consume(Token.STRING);
+    return readString();
+  }
+
+  Object nextNumber() throws IOException {
+    consume(Token.NUMBER);
+    return JSONObject.stringToValue(peekedNumber);
+  }
+
+  boolean nextBoolean() throws IOException {
+    consume(Token.BOOLEAN);
+    return peekedBoolean;
+  }
+
+  void nextNull() throws IOException {
+    consume(Token.NULL);
+  }
+
+  /** Reads the next value as String, Number, Boolean, HashMap, ArrayList or null. */
+  Object nextValue() throws IOException {
+    switch (peek()) {
+      case BEGIN_OBJECT:
+        {
+          Map<String, Object> map = new HashMap<>();
+          beginObject();
+          while (hasNext()) {
+            map.put(nextName(), nextValue());
+          }
+          endObject();
+          return map;
+        }
+      case BEGIN_ARRAY:
+        {
+          List<Object> list = new ArrayList<>();
+          beginArray();
+          while (hasNext()) {
+            list.add(nextValue());
+          }
+          endArray();
+          return list;
+        }
+      case STRING:
+        return nextString();
+      case NUMBER:
+        return nextNumber();
+      case BOOLEAN:
+        return nextBoolean();
+      case NULL:
+        nextNull();
+        return null;
+      default:
+        throw syntaxError("Expected a value");
+    }
+  }
+
+  void skipValue() throws IOException {
+    if (skipByBrackets) {
+      scanValue();
+      return;
+    }
+    int depth = 0;
+    do {
+      switch (peek()) {
+        case BEGIN_OBJECT:
+          beginObject();
+          depth++;
+          break;
+        case BEGIN_ARRAY:
+          beginArray();
+          depth++;
+          break;
+        case END_OBJECT:
+          endObject();
+          depth--;
+          break;
+        case END_ARRAY:
+          endArray();
+          depth--;
+          break;
+        case NAME:
+          nextName();
+          break;
+        case STRING:
+          nextString();
+          break;
+        case END_DOCUMENT:
+          throw syntaxError("Unexpected end of document");
+        default:
+          peeked = null;
+      }
+    } while (depth > 0);
+  }
+
+  private void scanValue() throws IOException {
+    int c;
+    if (peeked == null && scopes[scopeSize - 1] == DANGLING_NAME) {
+      // After a name, so the value is not tokenized at all.
+      expect(nextNonWhitespace() == ':', "Expected ':'");
+      scopes[scopeSize - 1] = NONEMPTY_OBJECT;
+      c = nextNonWhitespace();
+      valueStart = pos - 1;
+    } else {
+      switch (peek()) {
+        case BEGIN_OBJECT:
+          c = '{';
+          break;
+        case BEGIN_ARRAY:
+          c = '[';
+          break;
+        case STRING:
+          c = '"';
+          break;
+        case NUMBER:
+          skipScalar(peekedNumber.length());
+          return;
+        case BOOLEAN:
+          skipScalar(peekedBoolean ? 4 : 5);
+          return;
+        case NULL:
+          skipScalar(4);
+          return;
+        default:
+          throw syntaxError("Expected a value");
+      }
+      peeked = null;
+      valueStart = pos - 1;
+    }
+    skippedBytes++;
+    if (c == '"') {
+      scanString();
+    } else if (c == '{' || c == '[') {
+      scanNested();
+    } else if (c == '-' || (c >= '0' && c <= '9') || c == 't' || c == 'f' || c == 'n') {
+      scanLiteral();
+    } else {
+      throw syntaxError(c == -1 ? "Unexpected end of document" : "Unexpected character");
+    }
+  }
+
+  /* A number or literal that has already been read. */
+  private void skipScalar(int length) {
+    skippedBytes += length;
+    valueStart = pos - length;
+    peeked = null;
+  }
+
+  /* Past the opening bracket, to after the one closing it. */
+  private void scanNested() throws IOException {
+    int depth = 1;
+    while (depth > 0) {
+      int c = nextChar();
+      expect(c != -1, "Unexpected end of document");
+      skippedBytes += utf8Length((char) c);
+      if (c == '"') {
+        scanString();
+      } else if (c == '{' || c == '[') {
+        depth++;
+      } else if (c == '}' || c == ']') {
+        depth--;
+      }
+    }
+  }
+
+  /* Past the opening quote, to after the closing one. */
+  private void scanString() throws IOException {
+    while (true) {
+      int c = nextChar();
+      expect(c != -1, "Unterminated string");
+      skippedBytes += utf8Length((char) c);
+      if (c == '"') {
+        return;
+      } else if (c == '\\') {
+        int escaped = nextChar();
+        expect(escaped != -1, "Unterminated string");
+        skippedBytes += utf8Length((char) escaped);
+      }
+    }
+  }
+
+  /* Past the first character of a number or literal, to the character ending it. */
+  private void scanLiteral() throws IOException {
+    while (pos < limit || fill()) {
+      char c = buffer[pos];
+      if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+        return;
+      }
+      skippedBytes += utf8Length(c);
+      pos++;
+    }
+  }
+
+  /* Surrogates count two bytes each, four for the pair. */
+  private static int utf8Length(char c) {
+    if (c < 0x80) {
+      return 1;
+    } else if (c < 0x800 || Character.isSurrogate(c)) {
+      return 2;
+    }
+    return 3;
+  }
+
+  JsonMappingException syntaxError(String message) {
+    return new JsonMappingException("JSON-VU2PYGKKZQ", () -> message + " in JSON input.");
+  }
+
+  private void consume(Token expected) throws IOException {
+    if (peek() != expected) {
+      throw syntaxError("Expected " + expected + " but was " + peeked);
+    }
+    peeked = null;
+  }
+
+  private void push(int scope) {
+    if (scopeSize == scopes.length) {
+      scopes = Arrays.copyOf(scopes, scopeSize * 2);
+    }
+    scopes[scopeSize++] = scope;
+  }
+
+  private void expect(boolean condition, String message) {
+    if (!condition) {
+      throw syntaxError(message);
+    }
+  }
+
+  private Token readValueToken() throws IOException {
+    int c = nextNonWhitespace();
+    switch (c) {
+      case '{':
+        return Token.BEGIN_OBJECT;
+      case '[':
+        return Token.BEGIN_ARRAY;
+      case '"':
+        return Token.STRING;
+      case 't':
+        readLiteral("rue");
+        peekedBoolean = true;
+        return Token.BOOLEAN;
+      case 'f':
+        readLiteral("alse");
+        peekedBoolean = false;
+        return Token.BOOLEAN;
+      case 'n':
+        readLiteral("ull");
+        return Token.NULL;
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          pos--;
+          readNumber();
+          return Token.NUMBER;
+        }
+        throw syntaxError(c == -1 ? "Unexpected end of document" : "Unexpected character");
+    }
+  }
+
+  private void readLiteral(String rest) throws IOException {
+    for (int i = 0; i < rest.length(); i++) {
+      expect(nextChar() == rest.charAt(i), "Invalid literal");
+    }
+  }
+
+  private void readNumber() throws IOException {
+    text.setLength(0);
+    while (true) {
+      if (pos == limit && !fill()) {
+        break;
+      }
+      char c = buffer[pos];
+      if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+        text.append(c);
+        pos++;
+      } else {
+        break;
+      }
+    }
+    expect(isNumber(text), "Invalid number");
+    peekedNumber = text.toString();
+  }
+
+  /* -?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)? */
+  private static boolean isNumber(CharSequence number) {
+    int length = number.length();
+    int index = 0;
+    if (index < length && number.charAt(index) == '-') {
+      index++;
+    }
+    if (index < length && number.charAt(index) == '0') {
+      index++;
+    } else {
+      int start = index;
+      index = digits(number, index);
+      if (index == start) {
+        return false;
+      }
+    }
+    if (index < length && number.charAt(index) == '.') {
+      int start = ++index;
+      index = digits(number, index);
+      if (index == start) {
+        return false;
+      }
+    }
+    if (index < length && (number.charAt(index) == 'e' || number.charAt(index) == 'E')) {
+      index++;
+      if (index < length && (number.charAt(index) == '+' || number.charAt(index) == '-')) {
+        index++;
+      }
+      int start = index;
+      index = digits(number, index);
+      if (index == start) {
+        return false;
+      }
+    }
+    return index == length;
+  }
+
+  private static int digits(CharSequence number, int index) {
+    while (index < number.length() && number.charAt(index) >= '0' && number.charAt(index) <= '9') {
+      index++;
+    }
+    return index;
+  }
+
+  /* Reads the rest of a string whose opening quote has been consumed. */
+  private String readString() throws IOException {
+    text.setLength(0);
+    while (true) {
+      int start = pos;
+      while (pos < limit) {
+        char c = buffer[pos++];
+        if (c == '"') {
+          text.append(buffer, start, pos - start - 1);
+          return text.toString();
+        } else if (c == '\\') {
+          text.append(buffer, start, pos - start - 1);
+          text.append(readEscape());
+          start = pos;
+        } else if (c < 0x20) {
+          throw syntaxError("Unescaped control character");
+        }
+      }
+      text.append(buffer, start, pos - start);
+      expect(fill(), "Unterminated string");
+    }
+  }
+
+  private char readEscape() throws IOException {
+    int c = nextChar();
+    switch (c) {
+      case '"':
+      case '\\':
+      case '/':
+        return (char) c;
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'u':
+        {
+          int value = 0;
+          for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(nextChar(), 16);
+            expect(digit != -1, "Invalid unicode escape");
+            value = (value << 4) + digit;
+          }
+          return (char) value;
+        }
+      default:
+        throw syntaxError("Invalid escape sequence");
+    }
+  }
+
+  private int nextChar() throws IOException {
+    if (pos == limit && !fill()) {
+      return -1;
+    }
+    return buffer[pos++];
+  }
+
+  private int nextNonWhitespace() throws IOException {
+    while (true) {
+      if (pos == limit && !fill()) {
+        return -1;
+      }
+      char c = buffer[pos++];
+      if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+        return c;
+      }
+    }
+  }
+
+  private boolean fill() throws IOException {
+    if (in == null) {
+      return false;
+    }
+    int read = in.read(buffer, 0, buffer.length);
+    if (read <= 0) {
+      return false;
+    }
+    pos = 0;
+    limit = read;
+    return true;
+  }
+}
@@ -0,0 +1,145 @@
+package com.kantegasso.jsonmapping;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.json.JSONObject;
+
+/**
+ * Writes JSON tokens straight to a {@link Writer}, taking care of the separators between object
+ * members and array elements. Leaf values are formatted the same way <code>org.json</code> formats
+ * them in <code>JSONObject.toString()</code>.
+ */
+final class JsonWriter {
+
+  private final Writer writer;
+  /** The writer if it encodes to bytes, so pre-encoded names can be copied in. */
+  private final Utf8Buffer bytes;
+  private boolean[] hasElements = new boolean[Utils.MAX_RECURSION_DEPTH + 2];
+  private int depth = 0;
+  private boolean afterName = false;
+
+  JsonWriter(Writer writer) {
+    this.writer = writer;
+    this.bytes = writer instanceof Utf8Buffer ? (Utf8Buffer) writer : null;
+  }
+
+  JsonWriter beginObject() throws IOException {
+    return open('{');
+  }
+
+  JsonWriter endObject() throws IOException {
+    return close('}');
+  }
+
+  JsonWriter beginArray() throws IOException {
+    return open('[');
+  }
+
+  JsonWriter endArray() throws IOException {
+    return close(']');
+  }
+
+  JsonWriter name(String name) throws IOException {
+    separate();
+    JSONObject.quote(name, writer);
+    writer.write(':');
+    afterName = true;
+    return this;
+  }
+
+  /** Writes a name quoted and escaped upfront, which is copied as is. */
+  JsonWriter name(Name name) throws IOException {
+    separate();
+    if (bytes != null) {
+      bytes.write(name.utf8);
+    } else {
+      writer.write(name.chars);
+    }
+    afterName = true;
+    return this;
+  }
+
+  JsonWriter value(Object value) throws IOException {
+    separate();
+    if (value == null) {
+      writer.write("null");
+    } else if (value instanceof String) {
+      JSONObject.quote((String) value, writer);
+    } else if (value instanceof Number) {
+      writer.write(JSONObject.numberToString((Number) value));
+    } else if (value instanceof Boolean) {
+      writer.write(value.toString());
+    } else if (value instanceof Enum) {
+      JSONObject.quote(((Enum<?>) value).name(), writer);
+    } else {
+      writer.write(JSONObject.valueToString(value));
+    }
+    return this;
+  }
+
+  void flush() throws IOException {
+    writer.flush();
+  }
+
+  /** Whether org.json would accept the value, i.e. it is not a NaN or infinite number. */
+  static boolean isWritable(Object value) {
+    if (value instanceof Double) {
+      return !((Double) value).isNaN() && !((Double) value).isInfinite();
+    } else if (value instanceof Float) {
+      return !((Float) value).isNaN() && !((Float) value).isInfinite();
+    }
+    return true;
+  }
+
+  /**
+   * A member name as written, <code>"name":</code>, as characters and as UTF-8 bytes. Names are
+   * escaped once when a class is first mapped, rather than every time they are written.
+   */
+  static final class Name {
+    final char[] chars;
+    final byte[] utf8;
+
+    Name(String name) {
+      StringWriter quoted = new StringWriter(name.length() + 3);
+      try {
+        JSONObject.quote(name, quoted);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      quoted.write(':');
+      String token = quoted.toString();
+      this.chars = token.toCharArray();
+      this.utf8 = token.getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  private JsonWriter open(char bracket) throws IOException {
+    separate();
+    writer.write(bracket);
+    if (depth == hasElements.length) {
+      hasElements = Arrays.copyOf(hasElements, depth * 2);
+    }
+    hasElements[depth++] = false;
+    return this;
+  }
+
+  private JsonWriter close(char bracket) throws IOException {
+    depth--;
+    writer.write(bracket);
+    return this;
+  }
+
+  private void separate() throws IOException {
+    if (afterName) {
+      afterName = false;
+    } else if (depth > 0) {
+      if (hasElements[depth - 1]) {
+        writer.write(',');
+      }
+      hasElements[depth - 1] = true;
+    }
+  }
+}
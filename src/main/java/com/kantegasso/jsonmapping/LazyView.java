@@ -0,0 +1,300 @@
+package com.kantegasso.jsonmapping;
+
+import com.kantegasso.jsonmapping.JsonMapping.JsonMapper;
+import com.kantegasso.jsonmapping.JsonReader.Token;
+import com.kantegasso.jsonmapping.error.JsonMappingException;
+import io.vavr.CheckedFunction0;
+import io.vavr.control.Try;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Implements a @JsonMapper interface on top of the characters of a JSON object. Creating a view
+ * only indexes where the value of each property starts and ends, scanning over the values by
+ * matching brackets. A value is decoded when its getter is first called, and cached. A setter
+ * replaces the cached value, without changing the JSON. Default methods run as implemented by the
+ * interface.
+ *
+ * <p>Views can be shared between threads. A property read by several threads at once may be decoded
+ * more than once, but they all see a fully decoded value.
+ */
+final class LazyView implements InvocationHandler {
+
+  private static final Object UNREAD = new Object();
+
+  private static final ClassValue<ViewType> viewTypes =
+      new ClassValue<ViewType>() {
+        @Override
+        protected ViewType computeValue(Class<?> type) {
+          return new ViewType(type);
+        }
+      };
+
+  private final ViewType viewType;
+  private final char[] chars;
+  private final int start;
+  private final int end;
+  private final Settings settings;
+  /* Where the value of each property starts and ends in chars, or -1 if the JSON has none. */
+  private final int[] valueStarts;
+  private final int[] valueEnds;
+  private final AtomicReferenceArray<Object> values;
+
+  private LazyView(ViewType viewType, char[] chars, int start, int end, Settings settings)
+      throws Throwable {
+    this.viewType = viewType;
+    this.chars = chars;
+    this.start = start;
+    this.end = end;
+    this.settings = settings;
+    int properties = viewType.types.length;
+    this.valueStarts = new int[properties];
+    this.valueEnds = new int[properties];
+    this.values = new AtomicReferenceArray<>(properties);
+    for (int slot = 0; slot < properties; slot++) {
+      valueStarts[slot] = -1;
+      values.set(slot, UNREAD);
+    }
+    index();
+  }
+
+  /**
+   * A view of the JSON object as the interface. Fails with JSON-BGO8FTYXOE if the type is not an
+   * interface, or with a syntax error if the JSON is not an object with balanced values.
+   */
+  static <I> Try<I> of(String json, Class<I> type, Settings settings) {
+    return of(() -> CharBuffer.wrap(json.toCharArray()), type, settings);
+  }
+
+  /** Like the above, decoding the JSON straight to characters. */
+  static <I> Try<I> of(byte[] json, Class<I> type, Settings settings) {
+    return of(() -> StandardCharsets.UTF_8.decode(ByteBuffer.wrap(json)), type, settings);
+  }
+
+  private static <I> Try<I> of(
+      CheckedFunction0<CharBuffer> json, Class<I> type, Settings settings) {
+    return Try.of(() -> type)
+        .filterTry(
+            _type -> type.getDeclaredAnnotation(JsonMapper.class) != null,
+            () ->
+                new JsonMappingException(
+                    "JSON-KFSVGVSYHL",
+                    () ->
+                        "The type '"
+                        + type.getName()
+                        + "' does not have the required annotation @JsonMapper."))
+        .filterTry(
+            Class::isInterface,
+            () ->
+                new JsonMappingException(
+                    "JSON-BGO8FTYXOE",
+                    () -> "The type '" + type.getName() + "' is not an interface."))
+        .mapTry(_type -> json.apply())
+        .mapTry(chars -> view(type, chars.array(), 0, chars.limit(), settings));
+  }
+
+  private static <I> I view(Class<I> type, char[] chars, int start, int end, Settings settings)
+      throws Throwable {
+    LazyView view = new LazyView(viewTypes.get(type), chars, start, end, settings);
+    return type.cast(
+        Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, view));
+  }
+
+  private void index() throws Throwable {
+    JsonReader reader = new JsonReader(chars, start, end).skippingByBrackets();
+    if (reader.peek() != Token.BEGIN_OBJECT) {
+      throw reader.syntaxError("Expected an object");
+    }
+    reader.beginObject();
+    while (reader.hasNext()) {
+      Integer slot = reader.nextName(viewType.slotsByName);
+      reader.skipValue();
+      if (slot != null) {
+        valueStarts[slot] = reader.valueStart();
+        valueEnds[slot] = reader.position();
+      }
+    }
+    reader.endObject();
+    if (reader.peek() != Token.END_DOCUMENT) {
+      throw reader.syntaxError("Expected end of document");
+    }
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] arguments) throws Throwable {
+    Accessor accessor = viewType.accessors.get(method);
+    if (accessor != null) {
+      if (accessor.isSetter) {
+        values.set(accessor.slot, arguments[0]);
+        return null;
+      }
+      return get(method, accessor);
+    }
+    switch (method.getName()) {
+      case "equals":
+        return proxy == arguments[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "toString":
+        return viewType.type.getSimpleName() + new String(chars, start, end - start);
+      default:
+        if (method.isDefault()) {
+          return (Object) viewType.defaultMethod(method).invokeExact(proxy, arguments);
+        }
+        throw new UnsupportedOperationException(
+            "The method '" + method.getName() + "' is not a property of the view.");
+    }
+  }
+
+  private Object get(Method getter, Accessor accessor) {
+    Object value = values.get(accessor.slot);
+    if (value == UNREAD) {
+      value = decode(getter, accessor.slot);
+      values.compareAndSet(accessor.slot, UNREAD, value);
+      value = values.get(accessor.slot);
+    }
+    Class<?> type = viewType.types[accessor.slot];
+    return value == null && type.isPrimitive() ? Utils.primitiveDefaultValues.get(type) : value;
+  }
+
+  /* Getters do not declare checked exceptions, so they are wrapped rather than left undeclared. */
+  private Object decode(Method getter, int slot) {
+    try {
+      return decode(slot);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable cause) {
+      throw new JsonMappingException(
+          "JSON-M4WQ7ZC2RA",
+          () -> "Could not decode the value of '" + getter.getName() + "' in the view.",
+          cause);
+    }
+  }
+
+  private Object decode(int slot) throws Throwable {
+    int valueStart = valueStarts[slot];
+    if (valueStart < 0) {
+      return null;
+    }
+    // Nested @JsonMapper interfaces are views of their part of the JSON.
+    if (chars[valueStart] == '{' && viewType.nestedViews[slot]) {
+      return view(viewType.types[slot], chars, valueStart, valueEnds[slot], settings);
+    }
+    return Core.Read.propertyFromReader(
+        new JsonReader(chars, valueStart, valueEnds[slot]), viewType.converters[slot], settings);
+  }
+
+  /*
+   * A lookup with private access to the interface, which invoking its default methods needs. Java 9
+   * has MethodHandles.privateLookupIn for it, and Java 8 only the private Lookup constructor.
+   */
+  private static MethodHandles.Lookup privateLookup(Class<?> type) throws Exception {
+    Method privateLookupIn = null;
+    try {
+      privateLookupIn =
+          MethodHandles.class.getMethod(
+              "privateLookupIn", Class.class, MethodHandles.Lookup.class);
+    } catch (NoSuchMethodException _java8) {
+      Constructor<MethodHandles.Lookup> constructor =
+          MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+      constructor.setAccessible(true);
+      return constructor.newInstance(type, MethodHandles.Lookup.PRIVATE);
+    }
+    return (MethodHandles.Lookup) privateLookupIn.invoke(null, type, MethodHandles.lookup());
+  }
+
+  private static final class Accessor {
+    final int slot;
+    final boolean isSetter;
+
+    Accessor(int slot, boolean isSetter) {
+      this.slot = slot;
+      this.isSetter = isSetter;
+    }
+  }
+
+  /* The properties of an interface, from its getters, and the slot of each getter and setter. */
+  private static final class ViewType {
+    final Class<?> type;
+    /* The return type and converter of the getter of each property, by slot. */
+    final Class<?>[] types;
+    final ValueConverter[] converters;
+    final boolean[] nestedViews;
+    final NameTable<Integer> slotsByName;
+    final Map<Method, Accessor> accessors = new HashMap<>();
+    /* Default methods as (Object proxy, Object[] arguments)Object, made on first call. */
+    private final Map<Method, MethodHandle> defaultMethods = new ConcurrentHashMap<>();
+
+    ViewType(Class<?> type) {
+      this.type = type;
+      Map<String, Integer> slots = new HashMap<>();
+      List<Method> getters = new ArrayList<>();
+      for (Method method : type.getMethods()) {
+        if (Utils.isMethodAccessor(method)
+            && method.getParameterCount() == 0
+            && !method.isDefault()) {
+          Integer slot =
+              slots.computeIfAbsent(Utils.parseFieldName(method), _name -> getters.size());
+          if (slot == getters.size()) {
+            getters.add(method);
+          }
+          accessors.put(method, new Accessor(slot, false));
+        }
+      }
+      for (Method method : type.getMethods()) {
+        if (method.getName().startsWith("set")
+            && method.getParameterCount() == 1
+            && !method.isDefault()) {
+          Integer slot = slots.get(Utils.parseFieldName(method));
+          if (slot != null) {
+            accessors.put(method, new Accessor(slot, true));
+          }
+        }
+      }
+      this.types = new Class<?>[getters.size()];
+      this.converters = new ValueConverter[getters.size()];
+      this.nestedViews = new boolean[getters.size()];
+      for (int slot = 0; slot < getters.size(); slot++) {
+        Method getter = getters.get(slot);
+        types[slot] = getter.getReturnType();
+        converters[slot] = ValueConverter.of(getter.getReturnType(), getter.getGenericReturnType());
+        nestedViews[slot] =
+            types[slot].isInterface()
+                && types[slot].getDeclaredAnnotation(JsonMapper.class) != null;
+      }
+      this.slotsByName = new NameTable<>(slots);
+    }
+
+    MethodHandle defaultMethod(Method method) {
+      return defaultMethods.computeIfAbsent(
+          method,
+          _method -> {
+            try {
+              return privateLookup(method.getDeclaringClass())
+                  .unreflectSpecial(method, method.getDeclaringClass())
+                  .asType(MethodType.genericMethodType(method.getParameterCount() + 1))
+                  .asSpreader(Object[].class, method.getParameterCount());
+            } catch (Exception cause) {
+              throw new JsonMappingException(
+                  "JSON-7XKD2NVB5E",
+                  () -> "Could not call the default method '" + method.getName() + "' of the view.",
+                  cause);
+            }
+          });
+    }
+  }
+}
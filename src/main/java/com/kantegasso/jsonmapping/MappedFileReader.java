@@ -0,0 +1,121 @@
+package com.kantegasso.jsonmapping;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a UTF-8 encoded file by decoding straight from memory-mapped windows of it, rather than
+ * copying the bytes through a stream first. Files larger than a window are mapped one window at a
+ * time. Closing the reader closes the file.
+ *
+ * <p>A mapping cannot be released explicitly, and lives until the buffer is garbage collected.
+ * Until then, Windows keeps the file locked, so it cannot be deleted or replaced even after the
+ * reader is closed. Mapping only pays off for large files, so files smaller than 1 MiB are read
+ * with plain reads into a heap buffer instead, and are not locked after close.
+ */
+final class MappedFileReader extends Reader {
+
+  private static final long WINDOW_SIZE = 1L << 30;
+  /* The longest UTF-8 encoded character, so every window holds at least one. */
+  private static final long MIN_WINDOW_SIZE = 4;
+  private static final long MIN_MAPPED_SIZE = 1L << 20;
+
+  private final FileChannel channel;
+  private final long size;
+  private final long windowSize;
+  private final boolean mapped;
+  private final CharsetDecoder decoder =
+      StandardCharsets.UTF_8
+          .newDecoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  private final CharBuffer chars = CharBuffer.allocate(8192);
+  private ByteBuffer window;
+  private long windowStart;
+  private boolean finished = false;
+
+  MappedFileReader(Path path) throws IOException {
+    this(path, WINDOW_SIZE, MIN_MAPPED_SIZE);
+  }
+
+  /** Files of at least minMappedSize bytes are mapped, and smaller files read. */
+  MappedFileReader(Path path, long windowSize, long minMappedSize) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.windowSize = Math.max(windowSize, MIN_WINDOW_SIZE);
+    try {
+      this.size = channel.size();
+      this.mapped = size >= minMappedSize;
+      this.window = map(0);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    chars.flip();
+  }
+
+  @Override
+  public int read(char[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    } else if (!chars.hasRemaining() && !fill()) {
+      return -1;
+    }
+    int count = Math.min(length, chars.remaining());
+    chars.get(buffer, offset, count);
+    return count;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /*
+   * A character split across two windows is left undecoded at the end of the first, and the next
+   * window is mapped from its first byte.
+   */
+  private boolean fill() throws IOException {
+    chars.clear();
+    while (chars.position() == 0 && !finished) {
+      boolean lastWindow = windowStart + window.limit() == size;
+      CoderResult result = decoder.decode(window, chars, lastWindow);
+      if (result.isError()) {
+        result.throwException();
+      } else if (result.isUnderflow()) {
+        if (lastWindow) {
+          decoder.flush(chars);
+          finished = true;
+        } else {
+          window = map(windowStart + window.position());
+        }
+      }
+    }
+    chars.flip();
+    return chars.hasRemaining();
+  }
+
+  private ByteBuffer map(long start) throws IOException {
+    windowStart = start;
+    long length = Math.min(windowSize, size - start);
+    if (mapped) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+    }
+    ByteBuffer bytes = ByteBuffer.allocate((int) length);
+    while (bytes.hasRemaining()) {
+      if (channel.read(bytes, start + bytes.position()) < 0) {
+        throw new IOException("The file ended before its size of " + size + " bytes was read.");
+      }
+    }
+    bytes.flip();
+    return bytes;
+  }
+}
@@ -0,0 +1,45 @@
+package com.kantegasso.jsonmapping;
+
+import io.vavr.control.Try;
+import org.json.JSONObject;
+
+/**
+ * Passed to a {@link GeneratedMapper} to write and read property values the same way as the
+ * reflection-based mapping: nested objects are mapped recursively, and values are converted to the
+ * declared type of the property.
+ */
+public final class MappingContext {
+
+  private final int recursionDepth;
+  private final Settings settings;
+
+  MappingContext(int recursionDepth, Settings settings) {
+    this.recursionDepth = recursionDepth;
+    this.settings = settings;
+  }
+
+  /** Puts the value in the JSON. Null values and nested objects that cannot be written are left out. */
+  public void put(JSONObject json, String name, Object value) {
+    if (value == null) {
+      return;
+    }
+    if (Utils.isBasicJavaObject(value)) {
+      Try.run(() -> json.put(name, value));
+    } else {
+      Core.Write.objectAsJson(value, value.getClass(), recursionDepth + 1, settings)
+          .forEach(nested -> json.put(name, nested));
+    }
+  }
+
+  /**
+   * The member converted to the type, or null if it is missing or its value does not apply to the
+   * type. Nested objects that cannot be read fail the whole read.
+   */
+  public Object get(JSONObject json, String name, Class<?> type) {
+    Object value = json.opt(name);
+    if (value == null) {
+      return null;
+    }
+    return Try.of(() -> ValueConverter.cached(type).convert(value, recursionDepth, settings)).get();
+  }
+}
@@ -0,0 +1,39 @@
+package com.kantegasso.jsonmapping;
+
+/**
+ * Listener for the mapping operations of a {@link JsonMapping}, installed with {@link
+ * JsonMapping#withMetrics(MappingMetrics)}. It is called on the mapping thread, so implementations
+ * must be thread-safe and fast. {@link MappingStatistics} is an implementation keeping counters and
+ * latency histograms per type.
+ *
+ * <p>Without a listener nothing is measured, and mapping does not read the clock.
+ */
+public interface MappingMetrics {
+
+  enum Operation {
+    WRITE,
+    READ
+  }
+
+  /** How an object was written or read. */
+  enum Strategy {
+    GENERATED_MAPPER,
+    ACCESSORS,
+    CONSTRUCTOR,
+    SETTERS,
+    FIELDS
+  }
+
+  /**
+   * A call that mapped the type, or a list of it, completed. <code>bytes</code> is the size of the
+   * UTF-8 encoded JSON, or -1 when the JSON is not in bytes or a String, e.g. a JSONObject or a
+   * Reader.
+   */
+  void completed(Operation operation, Class<?> type, long nanos, long bytes);
+
+  /** A call failed, usually with a JsonMappingException holding an error code. */
+  void failed(Operation operation, Class<?> type, long nanos, Throwable cause);
+
+  /** An object of the type, at the top level or nested, was mapped with the strategy. */
+  void strategyUsed(Operation operation, Class<?> type, Strategy strategy);
+}
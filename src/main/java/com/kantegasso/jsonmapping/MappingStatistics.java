@@ -0,0 +1,180 @@
+package com.kantegasso.jsonmapping;
+
+import com.kantegasso.jsonmapping.error.JsonMappingException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * {@link MappingMetrics} keeping counts, bytes, strategies and a latency histogram per type and
+ * operation, and failures per error code. Recording is lock-free. The statistics keep the mapped
+ * classes reachable, so {@link #reset()} them when a class loader is discarded.
+ */
+public class MappingStatistics implements MappingMetrics {
+
+  private final Map<Class<?>, TypeStatistics[]> types = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> failuresByErrorCode = new ConcurrentHashMap<>();
+
+  @Override
+  public void completed(Operation operation, Class<?> type, long nanos, long bytes) {
+    TypeStatistics statistics = statistics(operation, type);
+    statistics.calls.increment();
+    statistics.latency.record(nanos);
+    if (bytes > 0) {
+      statistics.bytes.add(bytes);
+    }
+  }
+
+  @Override
+  public void failed(Operation operation, Class<?> type, long nanos, Throwable cause) {
+    TypeStatistics statistics = statistics(operation, type);
+    statistics.calls.increment();
+    statistics.failures.increment();
+    statistics.latency.record(nanos);
+    String errorCode =
+        cause instanceof JsonMappingException
+            ? ((JsonMappingException) cause).errorCode
+            : cause.getClass().getName();
+    failuresByErrorCode.computeIfAbsent(errorCode, _code -> new LongAdder()).increment();
+  }
+
+  @Override
+  public void strategyUsed(Operation operation, Class<?> type, Strategy strategy) {
+    statistics(operation, type).strategies[strategy.ordinal()].increment();
+  }
+
+  /** The types that have been mapped. */
+  public Set<Class<?>> types() {
+    return Collections.unmodifiableSet(types.keySet());
+  }
+
+  /** Completed and failed calls. */
+  public long calls(Class<?> type, Operation operation) {
+    return sum(type, operation, statistics -> statistics.calls.sum());
+  }
+
+  public long failures(Class<?> type, Operation operation) {
+    return sum(type, operation, statistics -> statistics.failures.sum());
+  }
+
+  /** The UTF-8 encoded bytes written or read, where the size of the JSON is known. */
+  public long bytes(Class<?> type, Operation operation) {
+    return sum(type, operation, statistics -> statistics.bytes.sum());
+  }
+
+  public long strategyCount(Class<?> type, Operation operation, Strategy strategy) {
+    return sum(type, operation, statistics -> statistics.strategies[strategy.ordinal()].sum());
+  }
+
+  /**
+   * The latency in nanoseconds at the percentile, from 0 to 100, within about 13%. 0 if the type
+   * has not been mapped.
+   */
+  public long latencyPercentile(Class<?> type, Operation operation, double percentile) {
+    return sum(type, operation, statistics -> statistics.latency.percentile(percentile));
+  }
+
+  public Map<String, Long> failuresByErrorCode() {
+    Map<String, Long> counts = new HashMap<>();
+    failuresByErrorCode.forEach((errorCode, count) -> counts.put(errorCode, count.sum()));
+    return counts;
+  }
+
+  public void reset() {
+    types.clear();
+    failuresByErrorCode.clear();
+  }
+
+  private TypeStatistics statistics(Operation operation, Class<?> type) {
+    TypeStatistics[] statistics = types.get(type);
+    if (statistics == null) {
+      statistics = types.computeIfAbsent(type, _type -> newStatistics());
+    }
+    return statistics[operation.ordinal()];
+  }
+
+  private long sum(Class<?> type, Operation operation, ToLongFunction<TypeStatistics> value) {
+    TypeStatistics[] statistics = types.get(type);
+    return statistics == null ? 0 : value.applyAsLong(statistics[operation.ordinal()]);
+  }
+
+  private static TypeStatistics[] newStatistics() {
+    TypeStatistics[] statistics = new TypeStatistics[Operation.values().length];
+    for (int index = 0; index < statistics.length; index++) {
+      statistics[index] = new TypeStatistics();
+    }
+    return statistics;
+  }
+
+  private static final class TypeStatistics {
+    final LongAdder calls = new LongAdder();
+    final LongAdder failures = new LongAdder();
+    final LongAdder bytes = new LongAdder();
+    final LongAdder[] strategies = new LongAdder[Strategy.values().length];
+    final Histogram latency = new Histogram();
+
+    TypeStatistics() {
+      for (int index = 0; index < strategies.length; index++) {
+        strategies[index] = new LongAdder();
+      }
+    }
+  }
+
+  /*
+   * Log-linear buckets like HdrHistogram: each power of two is split in eight sub-buckets, so a
+   * bucket is at most 1/8 wider than its lower bound. Values below 8 have a bucket each.
+   */
+  static final class Histogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+
+    void record(long value) {
+      counts.incrementAndGet(index(Math.max(value, 0)));
+    }
+
+    long percentile(double percentile) {
+      long total = 0;
+      for (int index = 0; index < counts.length(); index++) {
+        total += counts.get(index);
+      }
+      if (total == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100) / 100));
+      long seen = 0;
+      for (int index = 0; index < counts.length(); index++) {
+        seen += counts.get(index);
+        if (seen >= rank) {
+          return upperBound(index);
+        }
+      }
+      return upperBound(counts.length() - 1);
+    }
+
+    static int index(long value) {
+      if (value < SUB_BUCKETS) {
+        return (int) value;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+      int subBucket = (int) (value >>> exponent) & (SUB_BUCKETS - 1);
+      return (exponent + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /* The highest value of the bucket. */
+    static long upperBound(int index) {
+      if (index < SUB_BUCKETS) {
+        return index;
+      }
+      int exponent = index / SUB_BUCKETS - 1;
+      long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << exponent;
+      return lowerBound + (1L << exponent) - 1;
+    }
+  }
+}
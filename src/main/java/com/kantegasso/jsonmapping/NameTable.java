@@ -0,0 +1,94 @@
+package com.kantegasso.jsonmapping;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only map from property names, which can also be looked up by the characters of a name in a
+ * buffer. {@link JsonReader} matches member names against it without creating a String for them.
+ */
+final class NameTable<V> {
+
+  private final String[] names;
+  private final Object[] values;
+  private final int mask;
+
+  NameTable(Map<String, V> entries) {
+    // At most half full, so probes stay short.
+    int capacity = Integer.highestOneBit(Math.max(entries.size(), 1) * 2) << 1;
+    this.names = new String[capacity];
+    this.values = new Object[capacity];
+    this.mask = capacity - 1;
+    entries.forEach(
+        (name, value) -> {
+          int slot = hash(name) & mask;
+          while (names[slot] != null) {
+            slot = (slot + 1) & mask;
+          }
+          names[slot] = name;
+          values[slot] = value;
+        });
+  }
+
+  V get(String name) {
+    if (name == null) {
+      return null;
+    }
+    for (int slot = hash(name) & mask; names[slot] != null; slot = (slot + 1) & mask) {
+      if (names[slot].equals(name)) {
+        return value(slot);
+      }
+    }
+    return null;
+  }
+
+  /** The value of the name held in <code>chars[start, start + length)</code>, or null. */
+  V get(char[] chars, int start, int length) {
+    int hash = 0;
+    for (int index = start; index < start + length; index++) {
+      hash = 31 * hash + chars[index];
+    }
+    for (int slot = spread(hash) & mask; names[slot] != null; slot = (slot + 1) & mask) {
+      String name = names[slot];
+      if (name.length() == length && matches(name, chars, start)) {
+        return value(slot);
+      }
+    }
+    return null;
+  }
+
+  /** A table with only the entries whose name is in the set. */
+  NameTable<V> retain(Set<String> retained) {
+    Map<String, V> entries = new HashMap<>();
+    for (int slot = 0; slot < names.length; slot++) {
+      if (names[slot] != null && retained.contains(names[slot])) {
+        entries.put(names[slot], value(slot));
+      }
+    }
+    return new NameTable<>(entries);
+  }
+
+  @SuppressWarnings("unchecked")
+  private V value(int slot) {
+    return (V) values[slot];
+  }
+
+  private static boolean matches(String name, char[] chars, int start) {
+    for (int index = 0; index < name.length(); index++) {
+      if (name.charAt(index) != chars[start + index]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /* String.hashCode, so names in a buffer hash the same as their String. */
+  private static int hash(String name) {
+    return spread(name.hashCode());
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
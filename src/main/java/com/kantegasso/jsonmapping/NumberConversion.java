@@ -0,0 +1,178 @@
+package com.kantegasso.jsonmapping;
+
+import com.kantegasso.jsonmapping.error.JsonMappingException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Converts between the boxed and primitive number types, BigInteger and BigDecimal through a table
+ * built once, instead of looking up and invoking <code>xxxValue()</code> methods reflectively.
+ * Fractions are truncated when converting to an integral type, but values out of its range fail
+ * rather than wrap around. NaN and the infinities fail for the integral types and for BigDecimal.
+ */
+final class NumberConversion {
+
+  private interface Conversion {
+    Object convert(Number value);
+  }
+
+  private static final int BYTE = 0;
+  private static final int SHORT = 1;
+  private static final int INTEGER = 2;
+  private static final int LONG = 3;
+  private static final int FLOAT = 4;
+  private static final int DOUBLE = 5;
+  private static final int BIG_INTEGER = 6;
+  private static final int BIG_DECIMAL = 7;
+  /* Other Number subclasses, e.g. AtomicLong. Only used as a source. */
+  private static final int OTHER = 8;
+
+  private static final Map<Class<?>, Integer> kinds = new IdentityHashMap<>();
+
+  static {
+    kinds.put(byte.class, BYTE);
+    kinds.put(Byte.class, BYTE);
+    kinds.put(short.class, SHORT);
+    kinds.put(Short.class, SHORT);
+    kinds.put(int.class, INTEGER);
+    kinds.put(Integer.class, INTEGER);
+    kinds.put(long.class, LONG);
+    kinds.put(Long.class, LONG);
+    kinds.put(float.class, FLOAT);
+    kinds.put(Float.class, FLOAT);
+    kinds.put(double.class, DOUBLE);
+    kinds.put(Double.class, DOUBLE);
+    kinds.put(BigInteger.class, BIG_INTEGER);
+    kinds.put(BigDecimal.class, BIG_DECIMAL);
+  }
+
+  /* Indexed by source kind, then by target kind. */
+  private static final Conversion[][] conversions = new Conversion[OTHER + 1][BIG_DECIMAL + 1];
+
+  static {
+    for (int source = 0; source <= OTHER; source++) {
+      for (int target = 0; target <= BIG_DECIMAL; target++) {
+        conversions[source][target] = conversion(source, target);
+      }
+    }
+  }
+
+  private NumberConversion() {}
+
+  /** Whether the type, primitive or boxed, is one the table converts to. */
+  static boolean isSupported(Class<?> type) {
+    return kinds.containsKey(type);
+  }
+
+  /**
+   * The value as the type, primitive or boxed. Fails with JSON-QZNJUGUSS7 if the value is out of
+   * range of an integral type, or is NaN or infinite and the type is BigInteger or BigDecimal.
+   */
+  static Object convert(Number value, Class<?> type) {
+    Integer target = kinds.get(type);
+    if (target == null) {
+      throw new IllegalArgumentException("Not a supported number type: " + type.getName());
+    }
+    Integer source = kinds.get(value.getClass());
+    return conversions[source != null ? source : OTHER][target].convert(value);
+  }
+
+  private static Conversion conversion(int source, int target) {
+    if (source == target) {
+      return value -> value;
+    }
+    switch (target) {
+      case BYTE:
+        return value -> (byte) toLong(source, value, Byte.MIN_VALUE, Byte.MAX_VALUE);
+      case SHORT:
+        return value -> (short) toLong(source, value, Short.MIN_VALUE, Short.MAX_VALUE);
+      case INTEGER:
+        return value -> (int) toLong(source, value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+      case LONG:
+        return value -> toLong(source, value, Long.MIN_VALUE, Long.MAX_VALUE);
+      case FLOAT:
+        return Number::floatValue;
+      case DOUBLE:
+        return Number::doubleValue;
+      case BIG_INTEGER:
+        return value -> toBigDecimal(source, value).toBigInteger();
+      default:
+        return value -> toBigDecimal(source, value);
+    }
+  }
+
+  private static long toLong(int source, Number value, long min, long max) {
+    long result;
+    switch (source) {
+      case FLOAT:
+      case DOUBLE:
+        {
+          double truncated = value.doubleValue();
+          // Long.MAX_VALUE rounds up to 2^63 as a double, which is out of range.
+          if (Double.isNaN(truncated) || truncated < -0x1p63 || truncated >= 0x1p63) {
+            throw outOfRange(value);
+          }
+          result = (long) truncated;
+          break;
+        }
+      case BIG_INTEGER:
+        if (((BigInteger) value).bitLength() > 63) {
+          throw outOfRange(value);
+        }
+        result = value.longValue();
+        break;
+      case BIG_DECIMAL:
+        {
+          BigDecimal decimal = (BigDecimal) value;
+          // At most 18 digits before the point always fit a long.
+          if (decimal.precision() - decimal.scale() > 18) {
+            BigInteger integer = decimal.toBigInteger();
+            if (integer.bitLength() > 63) {
+              throw outOfRange(value);
+            }
+            result = integer.longValue();
+          } else {
+            result = decimal.longValue();
+          }
+          break;
+        }
+      default:
+        result = value.longValue();
+    }
+    if (result < min || result > max) {
+      throw outOfRange(value);
+    }
+    return result;
+  }
+
+  private static BigDecimal toBigDecimal(int source, Number value) {
+    switch (source) {
+      case FLOAT:
+      case DOUBLE:
+      case OTHER:
+        return parseBigDecimal(value);
+      case BIG_INTEGER:
+        return new BigDecimal((BigInteger) value);
+      case BIG_DECIMAL:
+        return (BigDecimal) value;
+      default:
+        return BigDecimal.valueOf(value.longValue());
+    }
+  }
+
+  /* NaN and the infinities have no BigDecimal, so they are out of range like for a long. */
+  private static BigDecimal parseBigDecimal(Number value) {
+    try {
+      return new BigDecimal(value.toString());
+    } catch (NumberFormatException _e) {
+      throw outOfRange(value);
+    }
+  }
+
+  private static JsonMappingException outOfRange(Number value) {
+    return new JsonMappingException(
+        "JSON-QZNJUGUSS7", () -> "The number " + value + " is out of range of the property.");
+  }
+}
@@ -0,0 +1,52 @@
+package com.kantegasso.jsonmapping;
+
+import java.util.Objects;
+
+/**
+ * A value read by {@link JsonMapping.Read#projectFromJson(String, Class)}, with the size of the JSON
+ * that was scanned over instead of being read.
+ */
+public final class Projection<T> {
+
+  private final T value;
+  private final long skippedBytes;
+
+  Projection(T value, long skippedBytes) {
+    this.value = value;
+    this.skippedBytes = skippedBytes;
+  }
+
+  public T value() {
+    return value;
+  }
+
+  /**
+   * The UTF-8 encoded size of the members and elements that were skipped, at any depth, not
+   * counting the whitespace around them.
+   */
+  public long skippedBytes() {
+    return skippedBytes;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof Projection)) {
+      return false;
+    }
+    Projection<?> projection = (Projection<?>) other;
+    return skippedBytes == projection.skippedBytes && Objects.equals(value, projection.value);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(value, skippedBytes);
+  }
+
+  @Override
+  public String toString() {
+    return "Projection{value=" + value + ", skippedBytes=" + skippedBytes + "}";
+  }
+}
@@ -0,0 +1,175 @@
+package com.kantegasso.jsonmapping;
+
+import com.kantegasso.jsonmapping.JsonMapping.AccessorStrategy;
+import io.vavr.control.Try;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Compiles property accessors for an {@link AccessorStrategy}. A strategy that cannot be applied to
+ * a member (e.g. a method handle for an inaccessible member) falls back to the next simpler one,
+ * ending with plain reflection.
+ */
+final class PropertyAccess {
+
+  private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+  private static final MethodType getterType = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType setterType =
+      MethodType.methodType(void.class, Object.class, Object.class);
+  private static final MethodType instantiatorType =
+      MethodType.methodType(Object.class, Object[].class);
+
+  private PropertyAccess() {}
+
+  interface Getter {
+    Object get(Object instance) throws Throwable;
+  }
+
+  interface Setter {
+    void set(Object instance, Object value) throws Throwable;
+  }
+
+  interface Instantiator {
+    Object newInstance(Object[] arguments) throws Throwable;
+  }
+
+  static Getter getter(Method method, AccessorStrategy strategy) {
+    switch (strategy) {
+      case LAMBDA_METAFACTORY:
+        return Try.of(() -> lambdaGetter(method))
+            .orElse(() -> Try.of(() -> handleGetter(lookup.unreflect(method))))
+            .getOrElse(() -> reflectiveGetter(method));
+      case METHOD_HANDLES:
+        return Try.of(() -> handleGetter(lookup.unreflect(method)))
+            .getOrElse(() -> reflectiveGetter(method));
+      default:
+        return reflectiveGetter(method);
+    }
+  }
+
+  static Getter getter(Field field, AccessorStrategy strategy) {
+    if (strategy == AccessorStrategy.REFLECTION) {
+      return field::get;
+    }
+    return Try.of(() -> handleGetter(lookup.unreflectGetter(field))).getOrElse(() -> field::get);
+  }
+
+  static Setter setter(Method method, AccessorStrategy strategy) {
+    switch (strategy) {
+      case LAMBDA_METAFACTORY:
+        return Try.of(() -> lambdaSetter(method))
+            .orElse(() -> Try.of(() -> handleSetter(lookup.unreflect(method))))
+            .getOrElse(() -> reflectiveSetter(method));
+      case METHOD_HANDLES:
+        return Try.of(() -> handleSetter(lookup.unreflect(method)))
+            .getOrElse(() -> reflectiveSetter(method));
+      default:
+        return reflectiveSetter(method);
+    }
+  }
+
+  static Setter setter(Field field, AccessorStrategy strategy) {
+    if (strategy == AccessorStrategy.REFLECTION) {
+      return field::set;
+    }
+    return Try.of(() -> handleSetter(lookup.unreflectSetter(field))).getOrElse(() -> field::set);
+  }
+
+  static Instantiator instantiator(Constructor<?> constructor, AccessorStrategy strategy) {
+    if (strategy == AccessorStrategy.REFLECTION) {
+      return constructor::newInstance;
+    }
+    return Try.of(
+            () -> {
+              MethodHandle handle =
+                  lookup
+                      .unreflectConstructor(constructor)
+                      .asSpreader(Object[].class, constructor.getParameterCount())
+                      .asType(instantiatorType);
+              return (Instantiator) arguments -> (Object) handle.invokeExact(arguments);
+            })
+        .getOrElse(() -> constructor::newInstance);
+  }
+
+  private static Getter reflectiveGetter(Method method) {
+    return instance -> method.invoke(instance, (Object[]) null);
+  }
+
+  private static Setter reflectiveSetter(Method method) {
+    return (instance, value) -> method.invoke(instance, value);
+  }
+
+  private static Getter handleGetter(MethodHandle handle) {
+    MethodHandle getter = handle.asType(getterType);
+    return instance -> (Object) getter.invokeExact(instance);
+  }
+
+  private static Setter handleSetter(MethodHandle handle) {
+    MethodHandle setter = handle.asType(setterType);
+    // A block body, so the polymorphic signature of invokeExact is typed as void.
+    return (instance, value) -> {
+      setter.invokeExact(instance, value);
+    };
+  }
+
+  private static Getter lambdaGetter(Method method) throws Throwable {
+    requireLinkable(method);
+    MethodHandle target = lookup.unreflect(method);
+    return (Getter)
+        LambdaMetafactory.metafactory(
+                lookup,
+                "get",
+                MethodType.methodType(Getter.class),
+                getterType,
+                target,
+                MethodType.methodType(
+                    Utils.convertPrimitiveType(method.getReturnType()), method.getDeclaringClass()))
+            .getTarget()
+            .invokeExact();
+  }
+
+  /*
+   * The generated class unboxes strictly, while reflection and method handles also widen
+   * primitives. Setters taking primitives therefore stay on method handles.
+   */
+  private static Setter lambdaSetter(Method method) throws Throwable {
+    requireLinkable(method);
+    Class<?> parameterType = method.getParameterTypes()[0];
+    if (parameterType.isPrimitive()) {
+      throw new IllegalArgumentException("Primitive setter parameter");
+    }
+    MethodHandle target = lookup.unreflect(method);
+    return (Setter)
+        LambdaMetafactory.metafactory(
+                lookup,
+                "set",
+                MethodType.methodType(Setter.class),
+                setterType,
+                target,
+                MethodType.methodType(void.class, method.getDeclaringClass(), parameterType))
+            .getTarget()
+            .invokeExact();
+  }
+
+  /*
+   * Generated lambdas call the method directly from this package and resolve the declaring class
+   * through this library's class loader, so both must allow it.
+   */
+  private static void requireLinkable(Method method) throws ReflectiveOperationException {
+    Class<?> declaringClass = method.getDeclaringClass();
+    if (!Modifier.isPublic(method.getModifiers())
+        || !Modifier.isPublic(declaringClass.getModifiers())
+        || Class.forName(declaringClass.getName(), false, PropertyAccess.class.getClassLoader())
+            != declaringClass) {
+      throw new IllegalAccessException(
+          "Method '" + method.getName() + "' is not linkable from json-mapping.");
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.kantegasso.jsonmapping;
+
+import com.kantegasso.jsonmapping.JsonMapping.AccessorStrategy;
+import com.kantegasso.jsonmapping.JsonMapping.Parser;
+
+/** Options of a {@link JsonMapping} instance, passed down through {@link Core}. */
+final class Settings {
+
+  /* Promotion is opt-in, so a configured accessor strategy is kept unless asked otherwise. */
+  static final int NO_PROMOTION = 0;
+
+  static final Settings DEFAULT =
+      new Settings(false, AccessorStrategy.REFLECTION, NO_PROMOTION, Parser.ORG_JSON, null);
+
+  final boolean changePrivateModifiersAllowed;
+  final AccessorStrategy accessorStrategy;
+  /** Calls after which a type is promoted to compiled accessors, or 0 to never promote. */
+  final int promotionThreshold;
+  /** How JSON text is parsed before it is bound. */
+  final Parser parser;
+  /** The listener of mapping operations, or null when nothing is measured. */
+  final MappingMetrics metrics;
+  /** The same options with compiled accessors, used for promoted types. */
+  final Settings promoted;
+
+  Settings(
+      boolean changePrivateModifiersAllowed,
+      AccessorStrategy accessorStrategy,
+      int promotionThreshold,
+      Parser parser,
+      MappingMetrics metrics) {
+    this.changePrivateModifiersAllowed = changePrivateModifiersAllowed;
+    this.accessorStrategy = accessorStrategy;
+    this.promotionThreshold = promotionThreshold;
+    this.parser = parser;
+    this.metrics = metrics;
+    this.promoted =
+        accessorStrategy == AccessorStrategy.LAMBDA_METAFACTORY
+            ? this
+            : new Settings(
+                changePrivateModifiersAllowed,
+                AccessorStrategy.LAMBDA_METAFACTORY,
+                promotionThreshold,
+                parser,
+                metrics);
+  }
+
+  static Settings of(boolean changePrivateModifiersAllowed) {
+    return new Settings(
+        changePrivateModifiersAllowed,
+        AccessorStrategy.REFLECTION,
+        NO_PROMOTION,
+        Parser.ORG_JSON,
+        null);
+  }
+
+  Settings withMetrics(MappingMetrics metrics) {
+    return new Settings(
+        changePrivateModifiersAllowed, accessorStrategy, promotionThreshold, parser, metrics);
+  }
+}
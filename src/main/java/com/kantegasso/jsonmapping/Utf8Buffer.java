@@ -0,0 +1,150 @@
+package com.kantegasso.jsonmapping;
+
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writer encoding characters straight to UTF-8 in a growable byte array, so output bound for bytes
+ * is not built as a String first. Unpaired surrogates are encoded as '?', like
+ * <code>String.getBytes(UTF_8)</code>.
+ *
+ * <p>One buffer is kept per thread and reused by {@link #acquire()}. A buffer that has grown past
+ * {@link #MAX_POOLED_SIZE} is shrunk when released, so one large value does not pin memory.
+ */
+final class Utf8Buffer extends Writer {
+
+  static final int INITIAL_SIZE = 1024;
+  static final int MAX_POOLED_SIZE = 64 * 1024;
+
+  private static final ThreadLocal<Utf8Buffer> POOL = ThreadLocal.withInitial(Utf8Buffer::new);
+
+  private byte[] bytes = new byte[INITIAL_SIZE];
+  private int size = 0;
+  private char highSurrogate = 0;
+  private boolean inUse = false;
+
+  /** The buffer of the thread, or a new one if it is in use further up the stack. */
+  static Utf8Buffer acquire() {
+    Utf8Buffer buffer = POOL.get();
+    if (buffer.inUse) {
+      return new Utf8Buffer();
+    }
+    buffer.inUse = true;
+    return buffer;
+  }
+
+  byte[] toByteArray() {
+    return Arrays.copyOf(bytes, size);
+  }
+
+  int size() {
+    return size;
+  }
+
+  void copyTo(ByteBuffer target) {
+    target.put(bytes, 0, size);
+  }
+
+  /** Appends bytes that are already UTF-8 encoded. */
+  void write(byte[] encoded) {
+    flush();
+    ensureCapacity(encoded.length);
+    System.arraycopy(encoded, 0, bytes, size, encoded.length);
+    size += encoded.length;
+  }
+
+  @Override
+  public void write(int c) {
+    encode((char) c);
+  }
+
+  @Override
+  public void write(char[] chars, int offset, int length) {
+    ensureCapacity(length);
+    for (int index = offset; index < offset + length; index++) {
+      char c = chars[index];
+      if (c < 0x80 && highSurrogate == 0 && size < bytes.length) {
+        bytes[size++] = (byte) c;
+      } else {
+        encode(c);
+      }
+    }
+  }
+
+  @Override
+  public void write(String string, int offset, int length) {
+    ensureCapacity(length);
+    for (int index = offset; index < offset + length; index++) {
+      char c = string.charAt(index);
+      if (c < 0x80 && highSurrogate == 0 && size < bytes.length) {
+        bytes[size++] = (byte) c;
+      } else {
+        encode(c);
+      }
+    }
+  }
+
+  @Override
+  public void flush() {
+    if (highSurrogate != 0) {
+      highSurrogate = 0;
+      put('?');
+    }
+  }
+
+  /** Empties the buffer and returns it to the pool of the thread. */
+  @Override
+  public void close() {
+    size = 0;
+    highSurrogate = 0;
+    if (bytes.length > MAX_POOLED_SIZE) {
+      bytes = new byte[INITIAL_SIZE];
+    }
+    inUse = false;
+  }
+
+  private void encode(char c) {
+    if (highSurrogate != 0) {
+      char high = highSurrogate;
+      highSurrogate = 0;
+      if (Character.isLowSurrogate(c)) {
+        int codePoint = Character.toCodePoint(high, c);
+        ensureCapacity(4);
+        bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+        bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+        return;
+      }
+      put('?');
+    }
+    if (c < 0x80) {
+      put((byte) c);
+    } else if (c < 0x800) {
+      ensureCapacity(2);
+      bytes[size++] = (byte) (0xC0 | (c >> 6));
+      bytes[size++] = (byte) (0x80 | (c & 0x3F));
+    } else if (Character.isHighSurrogate(c)) {
+      highSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      put('?');
+    } else {
+      ensureCapacity(3);
+      bytes[size++] = (byte) (0xE0 | (c >> 12));
+      bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      bytes[size++] = (byte) (0x80 | (c & 0x3F));
+    }
+  }
+
+  private void put(int b) {
+    ensureCapacity(1);
+    bytes[size++] = (byte) b;
+  }
+
+  private void ensureCapacity(int additional) {
+    if (size + additional > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+    }
+  }
+}
@@ -12,6 +12,7 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 class Utils {
 
@@ -30,29 +31,70 @@ class Utils {
     Utils.primitiveTypeConversion.put(double.class, Double.class);
   }
 
+  static final Map<Class<?>, Object> primitiveDefaultValues = new HashMap<>();
+
+  static {
+    Utils.primitiveDefaultValues.put(boolean.class, false);
+    Utils.primitiveDefaultValues.put(byte.class, (byte) 0);
+    Utils.primitiveDefaultValues.put(short.class, (short) 0);
+    Utils.primitiveDefaultValues.put(char.class, '\0');
+    Utils.primitiveDefaultValues.put(int.class, 0);
+    Utils.primitiveDefaultValues.put(long.class, 0L);
+    Utils.primitiveDefaultValues.put(float.class, 0f);
+    Utils.primitiveDefaultValues.put(double.class, 0d);
+  }
+
+  /* Resolved once per type and cached with the rest of its metadata. */
+  private static final ClassValue<Boolean> basicJavaObjects =
+      new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+          return type.isPrimitive()
+              || type.getPackage().getName().startsWith("java")
+              || type.isEnum();
+        }
+      };
+
+  private static final ClassValue<Boolean> javaLangNumbers =
+      new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+          return Number.class.equals(convertPrimitiveType(type).getSuperclass());
+        }
+      };
+
+  /** The property name of an accessor, e.g. <code>getUserKey</code> is <code>userKey</code>. */
   static String asField(String methodName) {
-    List<String> possiblePrefixes = List.of("is", "get", "set");
-    String methodPrefix = possiblePrefixes.filter(methodName::startsWith).get();
-    String fieldName = methodName.replaceFirst(methodPrefix, "");
-    return String.format(
-        "%s%s", Character.toLowerCase(fieldName.charAt(0)), fieldName.substring(1));
+    int prefixLength =
+        methodName.startsWith("is")
+            ? 2
+            : methodName.startsWith("get") || methodName.startsWith("set") ? 3 : -1;
+    if (prefixLength < 0) {
+      throw new NoSuchElementException("Not an accessor: " + methodName);
+    }
+    return Character.toLowerCase(methodName.charAt(prefixLength))
+        + methodName.substring(prefixLength + 1);
+  }
+
+  /** Name of the mapper generated for a type, e.g. <code>a.b.Outer_InnerJsonMapper</code>. */
+  static String generatedMapperName(Class<?> type) {
+    String packagePrefix = type.getName().substring(0, type.getName().lastIndexOf('.') + 1);
+    return packagePrefix
+        + type.getName().substring(packagePrefix.length()).replace('$', '_')
+        + "JsonMapper";
   }
 
   static boolean isMethodAccessor(Method method) {
-    return Try.of(() -> method.getName().startsWith("get") || method.getName().startsWith("is"))
-        .getOrElse(false);
+    return method.getName().startsWith("get") || method.getName().startsWith("is");
   }
 
   static Class<?> convertPrimitiveType(Class<?> type) {
-    return Try.of(() -> type.isPrimitive() ? primitiveTypeConversion.get(type) : type)
-        .getOrElse(type);
+    return type != null && type.isPrimitive() ? primitiveTypeConversion.get(type) : type;
   }
 
   // For converting between java.lang.Integer, java.lang.Long, etc.
   static boolean isJavaLangNumber(Class<?> type) {
-    return Try.of(() -> convertPrimitiveType(type))
-        .mapTry(objectType -> objectType.getSuperclass().equals(Number.class))
-        .getOrElse(false);
+    return type != null && javaLangNumbers.get(type);
   }
 
   static boolean isTypeEquals(Class<?> type1, Class<?> type2) {
@@ -64,7 +106,7 @@ class Utils {
   }
 
   static boolean isBasicJavaObject(Class<?> type) {
-    return type.isPrimitive() || type.getPackage().getName().startsWith("java") || type.isEnum();
+    return basicJavaObjects.get(type);
   }
 
   static Object convertJavaLangNumber(Object value, Class<?> valueType, Class<?> typeToConvert)
@@ -78,13 +120,6 @@ class Utils {
     return valueConversionMethod.invoke(value);
   }
 
-  static boolean isTypeApplicableToParse(Class<?> typeTo, Class<?> typeFrom) {
-    return isTypeEquals(typeFrom, typeTo)
-        || (isJavaLangNumber(typeFrom) && isJavaLangNumber(typeTo))
-        || (typeFrom.equals(String.class) && typeTo.isEnum())
-        || (typeFrom.equals(HashMap.class) && !isBasicJavaObject(typeTo));
-  }
-
   static String parseFieldName(Field field) {
     return Option.of(field.getAnnotation(JsonProperty.class))
         .map(JsonProperty::value)
@@ -92,13 +127,17 @@ class Utils {
         .getOrElse(field.getName());
   }
 
+  /*
+   * Also clears the final modifier, which setAccessible alone does not allow for static fields.
+   * Field.modifiers is hidden from reflection since Java 12, so there only setAccessible applies.
+   */
   static void makeFieldModifiable(Field field) {
+    makeFieldAccessible(field);
     AccessController.doPrivileged(
         (PrivilegedAction<Object>)
             () -> {
               try {
                 Field modifiersField = Field.class.getDeclaredField("modifiers");
-                makeFieldAccessible(field);
                 makeFieldAccessible(modifiersField);
                 modifiersField.setInt(field, field.getModifiers() & ~Modifier.FINAL);
               } catch (IllegalAccessException | NoSuchFieldException ignored) {
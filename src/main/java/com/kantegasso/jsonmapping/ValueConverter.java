@@ -0,0 +1,309 @@
+package com.kantegasso.jsonmapping;
+
+import com.kantegasso.jsonmapping.error.JsonMappingException;
+import io.vavr.control.Try;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Converts a value read from JSON to the declared type of a property or constructor parameter. The
+ * conversion is chosen once per declared type, so binding does not inspect the type again. Values
+ * that do not apply to the type convert to null, and collections and maps with an element that
+ * does not apply fail with JSON-E7L2QW9XKD.
+ */
+abstract class ValueConverter {
+
+  private static final Supplier<JsonMappingException> elementNotConverted =
+      JsonMappingException.shared(
+          "JSON-E7L2QW9XKD", "An element could not be converted to the declared element type.");
+
+  final Class<?> type;
+
+  private ValueConverter(Class<?> type) {
+    this.type = type;
+  }
+
+  static ValueConverter of(Class<?> type) {
+    Class<?> boxedType = Utils.convertPrimitiveType(type);
+    if (boxedType.isEnum()) {
+      return new EnumConverter(boxedType);
+    } else if (Utils.isJavaLangNumber(boxedType)) {
+      return new NumberConverter(boxedType);
+    } else if (!boxedType.isArray() && !Utils.isBasicJavaObject(boxedType)) {
+      return new NestedConverter(boxedType);
+    }
+    return new AssignableConverter(boxedType);
+  }
+
+  /**
+   * Like {@link #of(Class)}, but the elements of collections and of maps with string keys are
+   * converted to their declared type, e.g. the elements of a <code>List&lt;User&gt;</code> are read
+   * as nested objects. Other generic types are converted as their class.
+   */
+  static ValueConverter of(Class<?> type, Type genericType) {
+    if (!(genericType instanceof ParameterizedType)) {
+      return of(type);
+    }
+    Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+    if (Collection.class.isAssignableFrom(type)) {
+      Supplier<Collection<Object>> factory = collectionFactory(type);
+      return factory == null
+          ? of(type)
+          : new CollectionConverter(type, factory, elementConverter(arguments[0]));
+    } else if (Map.class.isAssignableFrom(type) && isStringKey(arguments[0])) {
+      Supplier<Map<String, Object>> factory = mapFactory(type);
+      return factory == null
+          ? of(type)
+          : new MapConverter(type, factory, elementConverter(arguments[1]));
+    }
+    return of(type);
+  }
+
+  private static ValueConverter elementConverter(Type elementType) {
+    if (elementType instanceof Class) {
+      return cached((Class<?>) elementType);
+    } else if (elementType instanceof ParameterizedType) {
+      return of((Class<?>) ((ParameterizedType) elementType).getRawType(), elementType);
+    } else if (elementType instanceof WildcardType) {
+      return elementConverter(((WildcardType) elementType).getUpperBounds()[0]);
+    }
+    return cached(Object.class);
+  }
+
+  private static boolean isStringKey(Type keyType) {
+    return keyType == String.class
+        || keyType == Object.class
+        || (keyType instanceof WildcardType
+            && isStringKey(((WildcardType) keyType).getUpperBounds()[0]));
+  }
+
+  /* Interfaces get the collection JSONArray.toList() would return, or a sorted or queue one. */
+  private static Supplier<Collection<Object>> collectionFactory(Class<?> type) {
+    if (type.isAssignableFrom(ArrayList.class)) {
+      return ArrayList::new;
+    } else if (type.isAssignableFrom(LinkedHashSet.class)) {
+      return LinkedHashSet::new;
+    } else if (type.isAssignableFrom(TreeSet.class)) {
+      return TreeSet::new;
+    } else if (type.isAssignableFrom(ArrayDeque.class)) {
+      return ArrayDeque::new;
+    }
+    return constructorFactory(type);
+  }
+
+  private static Supplier<Map<String, Object>> mapFactory(Class<?> type) {
+    if (type.isAssignableFrom(HashMap.class)) {
+      return HashMap::new;
+    } else if (type.isAssignableFrom(TreeMap.class)) {
+      return TreeMap::new;
+    }
+    return constructorFactory(type);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <C> Supplier<C> constructorFactory(Class<?> type) {
+    return Try.of(() -> type.getConstructor())
+        .filter(constructor -> !Modifier.isAbstract(type.getModifiers()))
+        .map(constructor -> (Supplier<C>) () -> Try.of(() -> (C) constructor.newInstance()).get())
+        .getOrNull();
+  }
+
+  private static final ClassValue<ValueConverter> converters =
+      new ClassValue<ValueConverter>() {
+        @Override
+        protected ValueConverter computeValue(Class<?> type) {
+          return of(type);
+        }
+      };
+
+  /** The converter for a type, created once per type. */
+  static ValueConverter cached(Class<?> type) {
+    return converters.get(type);
+  }
+
+  /** Whether JSON objects are bound to the type as a nested @JsonMapper object. */
+  boolean isNested() {
+    return false;
+  }
+
+  /** Whether the elements of collections or maps are converted to their declared type. */
+  boolean isContainer() {
+    return false;
+  }
+
+  abstract Object convert(Object value, int recursionDepth, Settings settings) throws Throwable;
+
+  /* Unwraps org.json values to the types JSONObject.toMap() would return. */
+  static Object toJavaValue(Object value) {
+    if (value instanceof JSONObject) {
+      return ((JSONObject) value).toMap();
+    } else if (value instanceof JSONArray) {
+      return ((JSONArray) value).toList();
+    } else if (JSONObject.NULL.equals(value)) {
+      return null;
+    }
+    return value;
+  }
+
+  private static final class AssignableConverter extends ValueConverter {
+    AssignableConverter(Class<?> type) {
+      super(type);
+    }
+
+    @Override
+    Object convert(Object value, int recursionDepth, Settings settings) {
+      Object javaValue = toJavaValue(value);
+      return type.isInstance(javaValue) ? javaValue : null;
+    }
+  }
+
+  private static final class EnumConverter extends ValueConverter {
+    EnumConverter(Class<?> type) {
+      super(type);
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Object convert(Object value, int recursionDepth, Settings settings) {
+      if (value instanceof String) {
+        return Try.of(() -> Enum.valueOf((Class<? extends Enum>) type, (String) value))
+            .getOrNull();
+      }
+      return type.isInstance(value) ? value : null;
+    }
+  }
+
+  private static final class NumberConverter extends ValueConverter {
+    NumberConverter(Class<?> type) {
+      super(type);
+    }
+
+    @Override
+    Object convert(Object value, int recursionDepth, Settings settings) throws Throwable {
+      if (type.isInstance(value)) {
+        return value;
+      } else if (value instanceof Number) {
+        return NumberConversion.isSupported(type)
+            ? NumberConversion.convert((Number) value, type)
+            : Utils.convertJavaLangNumber(value, value.getClass(), type);
+      }
+      return null;
+    }
+  }
+
+  private static final class CollectionConverter extends ValueConverter {
+    private final Supplier<Collection<Object>> factory;
+    private final ValueConverter elementConverter;
+
+    CollectionConverter(
+        Class<?> type, Supplier<Collection<Object>> factory, ValueConverter elementConverter) {
+      super(type);
+      this.factory = factory;
+      this.elementConverter = elementConverter;
+    }
+
+    @Override
+    boolean isContainer() {
+      return true;
+    }
+
+    @Override
+    Object convert(Object value, int recursionDepth, Settings settings) throws Throwable {
+      if (!(value instanceof Iterable) || value instanceof Map) {
+        return type.isInstance(value) ? value : null;
+      }
+      Collection<Object> collection = factory.get();
+      for (Object element : (Iterable<?>) value) {
+        collection.add(convertElement(elementConverter, element, recursionDepth, settings));
+      }
+      return collection;
+    }
+  }
+
+  private static final class MapConverter extends ValueConverter {
+    private final Supplier<Map<String, Object>> factory;
+    private final ValueConverter valueConverter;
+
+    MapConverter(Class<?> type, Supplier<Map<String, Object>> factory, ValueConverter valueConverter) {
+      super(type);
+      this.factory = factory;
+      this.valueConverter = valueConverter;
+    }
+
+    @Override
+    boolean isContainer() {
+      return true;
+    }
+
+    @Override
+    Object convert(Object value, int recursionDepth, Settings settings) throws Throwable {
+      Map<String, Object> map = factory.get();
+      if (value instanceof JSONObject) {
+        JSONObject jsonObject = (JSONObject) value;
+        for (String key : jsonObject.keySet()) {
+          map.put(key, convertElement(valueConverter, jsonObject.opt(key), recursionDepth, settings));
+        }
+      } else if (value instanceof Map) {
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          map.put(
+              String.valueOf(entry.getKey()),
+              convertElement(valueConverter, entry.getValue(), recursionDepth, settings));
+        }
+      } else {
+        return type.isInstance(value) ? value : null;
+      }
+      return map;
+    }
+  }
+
+  /* Null elements are kept, while an element that does not apply fails the whole container. */
+  private static Object convertElement(
+      ValueConverter converter, Object element, int recursionDepth, Settings settings)
+      throws Throwable {
+    if (element == null || JSONObject.NULL.equals(element)) {
+      return null;
+    }
+    Object converted = converter.convert(element, recursionDepth, settings);
+    if (converted == null) {
+      throw elementNotConverted.get();
+    }
+    return converted;
+  }
+
+  private static final class NestedConverter extends ValueConverter {
+    NestedConverter(Class<?> type) {
+      super(type);
+    }
+
+    @Override
+    boolean isNested() {
+      return true;
+    }
+
+    @Override
+    Object convert(Object value, int recursionDepth, Settings settings) throws Throwable {
+      if (value instanceof JSONObject) {
+        return Core.Read.valueFromJson((JSONObject) value, type, recursionDepth + 1, settings)
+            .get();
+      } else if (value instanceof Map) {
+        return Core.Read.valueFromJson(
+                new JSONObject((Map<?, ?>) value), type, recursionDepth + 1, settings)
+            .get();
+      }
+      return type.isInstance(value) ? value : null;
+    }
+  }
+}
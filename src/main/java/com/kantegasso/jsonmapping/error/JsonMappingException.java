@@ -1,15 +1,70 @@
 package com.kantegasso.jsonmapping.error;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.function.Supplier;
+
+/**
+ * Mapping failures are part of normal control flow, e.g. when a type is read with another strategy,
+ * so they are cheap to create: the stack trace is not captured and the message is formatted when it
+ * is first asked for. Set the system property {@value #CAPTURE_STACK_TRACES} to <code>true</code>
+ * to capture stack traces when debugging.
+ */
 public class JsonMappingException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  public static final String CAPTURE_STACK_TRACES = "jsonmapping.captureStackTraces";
+
+  static final boolean captureStackTraces = Boolean.getBoolean(CAPTURE_STACK_TRACES);
+
   public final String errorCode;
+  /* Not serializable, so the message is formatted before the exception is serialized. */
+  private final transient Supplier<String> detail;
+  private volatile String message;
 
   public JsonMappingException(String code, String message) {
-    super(ErrorMessage.createMessageWithCode(code, message));
-    errorCode = code;
+    this(code, () -> message, null);
   }
 
   public JsonMappingException(String code, String message, Throwable cause) {
-    super(ErrorMessage.createMessageWithCode(code, message), cause);
-    errorCode = code;
+    this(code, () -> message, cause);
+  }
+
+  /** The message is only built if it is asked for. */
+  public JsonMappingException(String code, Supplier<String> message) {
+    this(code, message, null);
+  }
+
+  public JsonMappingException(String code, Supplier<String> message, Throwable cause) {
+    super(null, cause, captureStackTraces, captureStackTraces);
+    this.errorCode = code;
+    this.detail = message;
+  }
+
+  /**
+   * A failure with a fixed message. Unless stack traces are captured, the same instance is returned
+   * for every call, so it must not be thrown with a cause or suppressed exceptions.
+   */
+  public static Supplier<JsonMappingException> shared(String code, String message) {
+    if (captureStackTraces) {
+      return () -> new JsonMappingException(code, message);
+    }
+    JsonMappingException shared = new JsonMappingException(code, message);
+    return () -> shared;
+  }
+
+  @Override
+  public String getMessage() {
+    String formatted = message;
+    if (formatted == null) {
+      formatted = ErrorMessage.createMessageWithCode(errorCode, detail.get());
+      message = formatted;
+    }
+    return formatted;
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    getMessage();
+    out.defaultWriteObject();
   }
 }
@@ -0,0 +1,254 @@
+package com.kantegasso.jsonmapping.processor;
+
+import com.kantegasso.jsonmapping.processor.MappedType.MappedProperty;
+import com.kantegasso.jsonmapping.processor.MappedType.ReadStrategy;
+import com.kantegasso.jsonmapping.processor.MappedType.UnsupportedTypeException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a reflection-free <code>TypeJsonMapper</code> for each @JsonMapper class, in the
+ * package of the class. Nested classes are named after their enclosing classes, e.g. <code>
+ * Outer_InnerJsonMapper</code>. {@link com.kantegasso.jsonmapping.JsonMapping} uses a generated
+ * mapper in preference to reflection when it finds one.
+ *
+ * <p>The processor is not registered as a service, so it only runs when enabled, e.g. with <code>
+ * -processor com.kantegasso.jsonmapping.processor.JsonMapperProcessor</code>. Types that cannot be
+ * mapped without reflection, such as private fields without accessors, are reported as a note and
+ * left to reflection.
+ *
+ * <p>Generated mappers fail where reflection fails, and JsonMapping then maps the object with
+ * reflection, so strategies fall back as without the mapper. They differ from reflection in that
+ * private fields go through their getters and setters, static fields are not mapped, and
+ * collections are read without binding their elements.
+ */
+@SupportedAnnotationTypes(JsonMapperProcessor.JSON_MAPPER)
+public class JsonMapperProcessor extends AbstractProcessor {
+
+  static final String JSON_MAPPER = "com.kantegasso.jsonmapping.JsonMapping.JsonMapper";
+  static final String JSON_PROPERTY = "com.kantegasso.jsonmapping.JsonMapping.JsonProperty";
+
+  private static final String SUFFIX = "JsonMapper";
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (TypeElement annotation : annotations) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        if (element.getKind() == ElementKind.CLASS) {
+          generate((TypeElement) element);
+        }
+      }
+    }
+    return false;
+  }
+
+  private void generate(TypeElement element) {
+    try {
+      write(MappedType.of(element, processingEnv.getTypeUtils()));
+    } catch (UnsupportedTypeException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(
+              Diagnostic.Kind.NOTE,
+              "No JsonMapper generated, reflection is used: " + e.getMessage(),
+              element);
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(
+              Diagnostic.Kind.ERROR, "Could not write JsonMapper: " + e.getMessage(), element);
+    }
+  }
+
+  private void write(MappedType type) throws IOException {
+    String packageName =
+        processingEnv.getElementUtils().getPackageOf(type.element).getQualifiedName().toString();
+    String typeName = type.element.getQualifiedName().toString();
+    String mapperName = flatName(type.element) + SUFFIX;
+    String qualifiedMapperName = packageName.isEmpty() ? mapperName : packageName + "." + mapperName;
+    try (Writer writer =
+            processingEnv.getFiler().createSourceFile(qualifiedMapperName, type.element).openWriter();
+        PrintWriter out = new PrintWriter(writer)) {
+      if (!packageName.isEmpty()) {
+        out.println("package " + packageName + ";");
+        out.println();
+      }
+      out.println("/** Generated by " + JsonMapperProcessor.class.getName() + ". Do not edit. */");
+      out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+      out.println(
+          "public final class "
+              + mapperName
+              + " implements com.kantegasso.jsonmapping.GeneratedMapper<"
+              + typeName
+              + "> {");
+      out.println();
+      out.println("  @Override");
+      out.println(
+          "  public org.json.JSONObject toJson("
+              + typeName
+              + " object, com.kantegasso.jsonmapping.MappingContext context) {");
+      out.println("    org.json.JSONObject json = new org.json.JSONObject();");
+      for (MappedProperty property : type.writtenProperties) {
+        out.println(
+            "    context.put(json, " + literal(property.name) + ", object." + property.member + ");");
+      }
+      out.println("    return json;");
+      out.println("  }");
+      out.println();
+      out.println("  @Override");
+      out.println(
+          "  public "
+              + typeName
+              + " fromJson(org.json.JSONObject json, com.kantegasso.jsonmapping.MappingContext"
+              + " context) throws Exception {");
+      writeFromJson(type, typeName, out);
+      out.println("  }");
+      out.println("}");
+    }
+  }
+
+  /*
+   * Like Core.Read: constructor parameters missing from the JSON get their default value. Setters
+   * are called with null for members that are missing or null, which fails for primitives. Fields
+   * fail with JSON-FF250T5XGZ if their member is missing. Members that do not apply to their type
+   * are left out. A failure makes JsonMapping read the object with reflection instead.
+   */
+  private void writeFromJson(MappedType type, String typeName, PrintWriter out) {
+    for (MappedProperty property : type.readProperties) {
+      if (type.readStrategy == ReadStrategy.FIELDS) {
+        out.println("    if (!json.has(" + literal(property.name) + ")) {");
+        writeThrow(
+            "JSON-FF250T5XGZ",
+            "The member '" + property.name + "' is missing from the JSON object.",
+            out);
+        out.println("    }");
+      } else if (type.readStrategy == ReadStrategy.SETTERS
+          && property.type.getKind().isPrimitive()) {
+        out.println("    if (json.isNull(" + literal(property.name) + ")) {");
+        writeThrow(
+            "JSON-8C8T0SOFH8",
+            "Could not parse mutable object. The member '"
+                + property.name
+                + "' has no value for a primitive.",
+            out);
+        out.println("    }");
+      }
+    }
+    for (int index = 0; index < type.readProperties.size(); index++) {
+      MappedProperty property = type.readProperties.get(index);
+      out.println(
+          "    Object p"
+              + index
+              + " = context.get(json, "
+              + literal(property.name)
+              + ", "
+              + erasure(property.type)
+              + ".class);");
+    }
+    if (type.readStrategy == ReadStrategy.CONSTRUCTOR) {
+      StringBuilder arguments = new StringBuilder();
+      for (int index = 0; index < type.readProperties.size(); index++) {
+        TypeMirror parameterType = type.readProperties.get(index).type;
+        if (index > 0) {
+          arguments.append(", ");
+        }
+        if (parameterType.getKind().isPrimitive()) {
+          arguments.append(
+              "p" + index + " != null ? " + cast(parameterType, index) + " : " + zero(parameterType));
+        } else {
+          arguments.append(cast(parameterType, index));
+        }
+      }
+      out.println("    return new " + typeName + "(" + arguments + ");");
+      return;
+    }
+    out.println("    " + typeName + " instance = new " + typeName + "();");
+    for (int index = 0; index < type.readProperties.size(); index++) {
+      MappedProperty property = type.readProperties.get(index);
+      String value = cast(property.type, index);
+      String assignment =
+          property.member.endsWith(" = ")
+              ? "instance." + property.member + value
+              : "instance." + property.member + "(" + value + ")";
+      if (type.readStrategy == ReadStrategy.SETTERS && !property.type.getKind().isPrimitive()) {
+        out.println("    if (json.isNull(" + literal(property.name) + ")) {");
+        out.println(
+            "      instance." + property.member + "((" + erasure(property.type) + ") null);");
+        out.println("    } else if (p" + index + " != null) {");
+      } else {
+        out.println("    if (p" + index + " != null) {");
+      }
+      out.println("      " + assignment + ";");
+      out.println("    }");
+    }
+    out.println("    return instance;");
+  }
+
+  private void writeThrow(String code, String message, PrintWriter out) {
+    out.println(
+        "      throw new com.kantegasso.jsonmapping.error.JsonMappingException("
+            + literal(code)
+            + ", "
+            + literal(message)
+            + ");");
+  }
+
+  private String cast(TypeMirror type, int index) {
+    String castType =
+        type.getKind().isPrimitive()
+            ? processingEnv
+                .getTypeUtils()
+                .boxedClass((PrimitiveType) type)
+                .getQualifiedName()
+                .toString()
+            : erasure(type);
+    return "(" + castType + ") p" + index;
+  }
+
+  private String erasure(TypeMirror type) {
+    return processingEnv.getTypeUtils().erasure(type).toString();
+  }
+
+  private static String zero(TypeMirror type) {
+    switch (type.getKind()) {
+      case BOOLEAN:
+        return "false";
+      case LONG:
+        return "0L";
+      case FLOAT:
+        return "0F";
+      case DOUBLE:
+        return "0D";
+      default:
+        return "(" + type + ") 0";
+    }
+  }
+
+  private String literal(String value) {
+    return processingEnv.getElementUtils().getConstantExpression(value);
+  }
+
+  private static String flatName(TypeElement element) {
+    Element enclosing = element.getEnclosingElement();
+    return enclosing instanceof TypeElement
+        ? flatName((TypeElement) enclosing) + "_" + element.getSimpleName()
+        : element.getSimpleName().toString();
+  }
+}
@@ -0,0 +1,344 @@
+package com.kantegasso.jsonmapping.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+
+/**
+ * How a @JsonMapper type is written and read, resolved from source with the same rules the
+ * reflection-based mapping uses at runtime. Members that generated code in the same package cannot
+ * reach without reflection make the type unsupported, and it is left to reflection.
+ */
+final class MappedType {
+
+  enum ReadStrategy {
+    CONSTRUCTOR,
+    SETTERS,
+    FIELDS
+  }
+
+  /** A property, with the Java expression or member used to get or set it. */
+  static final class MappedProperty {
+    final String name;
+    final TypeMirror type;
+    final String member;
+
+    MappedProperty(String name, TypeMirror type, String member) {
+      this.name = name;
+      this.type = type;
+      this.member = member;
+    }
+  }
+
+  static final class UnsupportedTypeException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    UnsupportedTypeException(String message) {
+      super(message);
+    }
+  }
+
+  final TypeElement element;
+  /** Getter calls or field reads, in declaration order. */
+  final List<MappedProperty> writtenProperties;
+  final ReadStrategy readStrategy;
+  /** Constructor parameters, setter calls or field assignments, in declaration order. */
+  final List<MappedProperty> readProperties;
+
+  private final Types types;
+
+  private MappedType(TypeElement element, Types types) throws UnsupportedTypeException {
+    this.element = element;
+    this.types = types;
+    requireAccessible(element);
+    this.writtenProperties = writtenProperties();
+    Optional<ExecutableElement> constructor = namedConstructor();
+    if (constructor.isPresent()) {
+      this.readStrategy = ReadStrategy.CONSTRUCTOR;
+      this.readProperties = constructorParameters(constructor.get());
+    } else if (hasPublicNoArgConstructor() && !setters().isEmpty()) {
+      this.readStrategy = ReadStrategy.SETTERS;
+      this.readProperties = setterProperties();
+    } else {
+      this.readStrategy = ReadStrategy.FIELDS;
+      this.readProperties = assignedFields();
+    }
+  }
+
+  static MappedType of(TypeElement element, Types types) throws UnsupportedTypeException {
+    return new MappedType(element, types);
+  }
+
+  private static void requireAccessible(TypeElement element) throws UnsupportedTypeException {
+    if (element.getKind() != ElementKind.CLASS) {
+      throw new UnsupportedTypeException("only classes can be instantiated");
+    }
+    if (element.getModifiers().contains(Modifier.ABSTRACT)) {
+      throw new UnsupportedTypeException("abstract classes cannot be instantiated");
+    }
+    if (!element.getTypeParameters().isEmpty()) {
+      throw new UnsupportedTypeException("generic types are not supported");
+    }
+    for (Element type = element;
+        type instanceof TypeElement;
+        type = type.getEnclosingElement()) {
+      TypeElement typeElement = (TypeElement) type;
+      if (typeElement.getModifiers().contains(Modifier.PRIVATE)) {
+        throw new UnsupportedTypeException("private types are not accessible");
+      }
+      if (typeElement.getNestingKind() == NestingKind.TOP_LEVEL) {
+        return;
+      }
+      if (typeElement.getNestingKind() != NestingKind.MEMBER
+          || !typeElement.getModifiers().contains(Modifier.STATIC)) {
+        throw new UnsupportedTypeException("inner and local classes are not supported");
+      }
+    }
+  }
+
+  /*
+   * Like Core.Write: getters annotated with @JsonProperty if there are any, otherwise the fields,
+   * read directly or through their getter when private. Static fields are not mapped.
+   */
+  private List<MappedProperty> writtenProperties() throws UnsupportedTypeException {
+    List<ExecutableElement> accessors =
+        methods().stream()
+            .filter(method -> isAccessorName(method.getSimpleName().toString()))
+            .filter(method -> jsonPropertyName(method).isPresent())
+            .collect(Collectors.toList());
+    List<MappedProperty> properties = new ArrayList<>();
+    if (!accessors.isEmpty()) {
+      for (ExecutableElement accessor : accessors) {
+        if (!isCallable(accessor) || !accessor.getParameters().isEmpty()) {
+          throw new UnsupportedTypeException(
+              "accessor " + accessor.getSimpleName() + " cannot be called");
+        }
+        properties.add(
+            new MappedProperty(
+                propertyName(accessor), accessor.getReturnType(), accessor.getSimpleName() + "()"));
+      }
+      return properties;
+    }
+    for (VariableElement field : instanceFields()) {
+      if (!field.getModifiers().contains(Modifier.PRIVATE)) {
+        properties.add(
+            new MappedProperty(propertyName(field), field.asType(), field.getSimpleName().toString()));
+        continue;
+      }
+      ExecutableElement getter =
+          getter(field)
+              .orElseThrow(
+                  () ->
+                      new UnsupportedTypeException(
+                          "private field " + field.getSimpleName() + " has no getter"));
+      properties.add(
+          new MappedProperty(propertyName(field), field.asType(), getter.getSimpleName() + "()"));
+    }
+    return properties;
+  }
+
+  /*
+   * Like ClassMetadata.creator: a public constructor accepting the types of all declared fields,
+   * used when every parameter has a @JsonProperty name.
+   */
+  private Optional<ExecutableElement> namedConstructor() {
+    List<TypeMirror> fieldTypes =
+        ElementFilter.fieldsIn(element.getEnclosedElements()).stream()
+            .map(field -> types.erasure(field.asType()))
+            .collect(Collectors.toList());
+    return ElementFilter.constructorsIn(element.getEnclosedElements()).stream()
+        .filter(constructor -> constructor.getModifiers().contains(Modifier.PUBLIC))
+        .filter(
+            constructor ->
+                fieldTypes.stream()
+                    .allMatch(
+                        fieldType ->
+                            constructor.getParameters().stream()
+                                .anyMatch(
+                                    parameter ->
+                                        types.isSameType(
+                                            types.erasure(parameter.asType()), fieldType))))
+        .findFirst()
+        .filter(
+            constructor ->
+                constructor.getParameters().stream()
+                    .allMatch(parameter -> jsonPropertyName(parameter).isPresent()))
+        .filter(constructor -> constructor.getThrownTypes().isEmpty());
+  }
+
+  private List<MappedProperty> constructorParameters(ExecutableElement constructor) {
+    return constructor.getParameters().stream()
+        .map(
+            parameter ->
+                new MappedProperty(jsonPropertyName(parameter).get(), parameter.asType(), null))
+        .collect(Collectors.toList());
+  }
+
+  /* Class.newInstance, as used by Core.Read, needs a public type with a public no-arg constructor. */
+  private boolean hasPublicNoArgConstructor() {
+    for (Element type = element;
+        type instanceof TypeElement;
+        type = type.getEnclosingElement()) {
+      if (!type.getModifiers().contains(Modifier.PUBLIC)) {
+        return false;
+      }
+    }
+    return ElementFilter.constructorsIn(element.getEnclosedElements()).stream()
+        .anyMatch(
+            constructor ->
+                constructor.getModifiers().contains(Modifier.PUBLIC)
+                    && constructor.getParameters().isEmpty()
+                    && constructor.getThrownTypes().isEmpty());
+  }
+
+  private List<ExecutableElement> setters() {
+    return methods().stream()
+        .filter(method -> method.getSimpleName().toString().startsWith("set"))
+        .filter(method -> method.getParameters().size() == 1)
+        .filter(method -> method.getReturnType().getKind() == TypeKind.VOID)
+        .filter(method -> method.getSimpleName().length() > "set".length())
+        .collect(Collectors.toList());
+  }
+
+  private List<MappedProperty> setterProperties() throws UnsupportedTypeException {
+    List<MappedProperty> properties = new ArrayList<>();
+    for (ExecutableElement setter : setters()) {
+      if (!isCallable(setter)) {
+        throw new UnsupportedTypeException("setter " + setter.getSimpleName() + " cannot be called");
+      }
+      properties.add(
+          new MappedProperty(
+              propertyName(setter),
+              setter.getParameters().get(0).asType(),
+              setter.getSimpleName().toString()));
+    }
+    return properties;
+  }
+
+  /* Fields are assigned directly, or through their setter when private or final. */
+  private List<MappedProperty> assignedFields() throws UnsupportedTypeException {
+    boolean instantiable =
+        ElementFilter.constructorsIn(element.getEnclosedElements()).stream()
+            .anyMatch(
+                constructor ->
+                    !constructor.getModifiers().contains(Modifier.PRIVATE)
+                        && constructor.getParameters().isEmpty()
+                        && constructor.getThrownTypes().isEmpty());
+    if (!instantiable) {
+      throw new UnsupportedTypeException("no accessible no-arg constructor");
+    }
+    List<MappedProperty> properties = new ArrayList<>();
+    for (VariableElement field : instanceFields()) {
+      Set<Modifier> modifiers = field.getModifiers();
+      if (!modifiers.contains(Modifier.PRIVATE) && !modifiers.contains(Modifier.FINAL)) {
+        properties.add(
+            new MappedProperty(propertyName(field), field.asType(), field.getSimpleName() + " = "));
+        continue;
+      }
+      ExecutableElement setter =
+          setter(field)
+              .orElseThrow(
+                  () ->
+                      new UnsupportedTypeException(
+                          "field " + field.getSimpleName() + " cannot be assigned"));
+      properties.add(
+          new MappedProperty(propertyName(field), field.asType(), setter.getSimpleName().toString()));
+    }
+    return properties;
+  }
+
+  private List<ExecutableElement> methods() {
+    return ElementFilter.methodsIn(element.getEnclosedElements());
+  }
+
+  private List<VariableElement> instanceFields() {
+    return ElementFilter.fieldsIn(element.getEnclosedElements()).stream()
+        .filter(field -> !field.getModifiers().contains(Modifier.STATIC))
+        .collect(Collectors.toList());
+  }
+
+  private Optional<ExecutableElement> getter(VariableElement field) {
+    String suffix = capitalize(field.getSimpleName().toString());
+    return methods().stream()
+        .filter(
+            method ->
+                method.getSimpleName().contentEquals("get" + suffix)
+                    || method.getSimpleName().contentEquals("is" + suffix))
+        .filter(method -> method.getParameters().isEmpty())
+        .filter(method -> types.isSameType(method.getReturnType(), field.asType()))
+        .filter(this::isCallable)
+        .findFirst();
+  }
+
+  private Optional<ExecutableElement> setter(VariableElement field) {
+    String name = "set" + capitalize(field.getSimpleName().toString());
+    return setters().stream()
+        .filter(method -> method.getSimpleName().contentEquals(name))
+        .filter(method -> types.isSameType(method.getParameters().get(0).asType(), field.asType()))
+        .filter(this::isCallable)
+        .findFirst();
+  }
+
+  private boolean isCallable(ExecutableElement method) {
+    return !method.getModifiers().contains(Modifier.PRIVATE)
+        && !method.getModifiers().contains(Modifier.STATIC)
+        && method.getThrownTypes().isEmpty();
+  }
+
+  private static boolean isAccessorName(String name) {
+    return name.startsWith("get") || name.startsWith("is");
+  }
+
+  /* Utils.parseFieldName: the @JsonProperty name, otherwise the field or method name. */
+  private static String propertyName(Element element) {
+    return jsonPropertyName(element)
+        .orElseGet(
+            () ->
+                element.getKind() == ElementKind.METHOD
+                    ? asField(element.getSimpleName().toString())
+                    : element.getSimpleName().toString());
+  }
+
+  /* Utils.asField */
+  private static String asField(String methodName) {
+    int prefixLength = methodName.startsWith("is") ? 2 : 3;
+    return Character.toLowerCase(methodName.charAt(prefixLength))
+        + methodName.substring(prefixLength + 1);
+  }
+
+  private static String capitalize(String name) {
+    return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+  }
+
+  /* The annotation is matched by name, so the processor does not load the annotated classes. */
+  private static Optional<String> jsonPropertyName(Element element) {
+    for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+      TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+      if (annotationType.getQualifiedName().contentEquals(JsonMapperProcessor.JSON_PROPERTY)) {
+        return annotation.getElementValues().entrySet().stream()
+            .filter(entry -> entry.getKey().getSimpleName().contentEquals("value"))
+            .map(entry -> entry.getValue())
+            .map(AnnotationValue::getValue)
+            .map(String::valueOf)
+            .filter(value -> !value.isEmpty())
+            .findFirst();
+      }
+    }
+    return Optional.empty();
+  }
+}
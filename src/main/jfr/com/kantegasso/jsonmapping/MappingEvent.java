@@ -0,0 +1,134 @@
+package com.kantegasso.jsonmapping;
+
+import com.kantegasso.jsonmapping.MappingMetrics.Operation;
+import com.kantegasso.jsonmapping.MappingMetrics.Strategy;
+import com.kantegasso.jsonmapping.error.JsonMappingException;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a read or write of a {@link JsonMapping}, lasting the whole call. Only
+ * used through {@link EventRecorder}, which {@link FlightRecording} loads by name after checking
+ * that <code>jdk.jfr</code> exists.
+ */
+@Name(MappingEvent.NAME)
+@Label("JSON Mapping")
+@Category("JSON Mapping")
+@Description("A read or write of a type, or a list of it, by JsonMapping")
+@Enabled(false)
+final class MappingEvent extends Event {
+
+  static final String NAME = "com.kantegasso.jsonmapping.Mapping";
+
+  private static final EventType type = EventType.getEventType(MappingEvent.class);
+  private static final ThreadLocal<Call> calls = ThreadLocal.withInitial(Call::new);
+
+  @Label("Operation")
+  String operation;
+
+  @Label("Mapped Class")
+  Class<?> mappedClass;
+
+  @Label("Size")
+  @Description("The size of the UTF-8 encoded JSON, or -1 if it was not in bytes or a String")
+  @DataAmount
+  long size;
+
+  @Label("Recursion Depth")
+  @Description("The depth of the most deeply nested object mapped, 0 for the top level")
+  int recursionDepth;
+
+  @Label("Strategy")
+  @Description("How the top-level object was mapped, if the call mapped an object")
+  String strategy;
+
+  @Label("Error Code")
+  @Description("The error code, or the exception class, of a failed call")
+  String errorCode;
+
+  /** Loaded by {@link FlightRecording}, which cannot refer to this class when compiled on 8. */
+  static final class EventRecorder implements FlightRecording.Recorder {
+    @Override
+    public boolean isEnabled() {
+      return isTypeEnabled();
+    }
+
+    @Override
+    public void begin() {
+      beginCall();
+    }
+
+    @Override
+    public void strategyUsed(Strategy strategy, int recursionDepth) {
+      MappingEvent.strategyUsed(strategy, recursionDepth);
+    }
+
+    @Override
+    public void end(Operation operation, Class<?> type, long bytes, Throwable cause) {
+      endCall(operation, type, bytes, cause);
+    }
+  }
+
+  /* The event of the call in progress on the thread, and what it has mapped so far. */
+  private static final class Call {
+    MappingEvent event;
+    int nesting;
+    int recursionDepth;
+    Strategy strategy;
+  }
+
+  static boolean isTypeEnabled() {
+    return type.isEnabled();
+  }
+
+  static void beginCall() {
+    Call call = calls.get();
+    if (call.nesting++ == 0) {
+      call.recursionDepth = 0;
+      call.strategy = null;
+      call.event = new MappingEvent();
+      call.event.begin();
+    }
+  }
+
+  static void strategyUsed(Strategy strategy, int recursionDepth) {
+    Call call = calls.get();
+    // Nested calls, e.g. from a generated mapper, count from their own top level.
+    if (call.nesting == 1) {
+      call.recursionDepth = Math.max(call.recursionDepth, recursionDepth);
+      if (recursionDepth == 0) {
+        call.strategy = strategy;
+      }
+    }
+  }
+
+  static void endCall(Operation operation, Class<?> mappedClass, long size, Throwable cause) {
+    Call call = calls.get();
+    if (call.nesting == 0 || --call.nesting > 0) {
+      return;
+    }
+    MappingEvent event = call.event;
+    call.event = null;
+    event.end();
+    if (event.shouldCommit()) {
+      event.operation = operation.name();
+      event.mappedClass = mappedClass;
+      event.size = size;
+      event.recursionDepth = call.recursionDepth;
+      event.strategy = call.strategy != null ? call.strategy.name() : null;
+      if (cause != null) {
+        event.errorCode =
+            cause instanceof JsonMappingException
+                ? ((JsonMappingException) cause).errorCode
+                : cause.getClass().getName();
+      }
+      event.commit();
+    }
+  }
+}
@@ -0,0 +1,340 @@
+package com.kantegasso.jsonmapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+
+import com.kantegasso.jsonmapping.error.JsonMappingException;
+import com.kantegasso.jsonmapping.processor.JsonMapperProcessor;
+import io.vavr.control.Try;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+ * The stubs are compiled without the processor so the reflection paths stay covered. These tests
+ * compile their own sources with it.
+ */
+public class JsonMapperProcessorTest {
+
+  private static final String PACKAGE = "com.kantegasso.jsonmapping.generated";
+
+  private static final String ACCOUNT =
+      "package com.kantegasso.jsonmapping.generated;\n"
+          + "import com.kantegasso.jsonmapping.JsonMapping.JsonMapper;\n"
+          + "import com.kantegasso.jsonmapping.JsonMapping.JsonProperty;\n"
+          + "@JsonMapper\n"
+          + "public class Account {\n"
+          + "  private String name;\n"
+          + "  private long balance;\n"
+          + "  private boolean active;\n"
+          + "  private Owner owner;\n"
+          + "  public Account() {}\n"
+          + "  public String getName() { return name; }\n"
+          + "  public void setName(String name) { this.name = name; }\n"
+          + "  public long getBalance() { return balance; }\n"
+          + "  public void setBalance(long balance) { this.balance = balance; }\n"
+          + "  public boolean isActive() { return active; }\n"
+          + "  public void setActive(boolean active) { this.active = active; }\n"
+          + "  public Owner getOwner() { return owner; }\n"
+          + "  public void setOwner(Owner owner) { this.owner = owner; }\n"
+          + "  @JsonMapper\n"
+          + "  public static class Owner {\n"
+          + "    private final String email;\n"
+          + "    private final int age;\n"
+          + "    public Owner(@JsonProperty(\"email\") String email, @JsonProperty(\"age\") int age) {\n"
+          + "      this.email = email;\n"
+          + "      this.age = age;\n"
+          + "    }\n"
+          + "    public String getEmail() { return email; }\n"
+          + "    public int getAge() { return age; }\n"
+          + "  }\n"
+          + "}\n";
+
+  private static final String SECRET =
+      "package com.kantegasso.jsonmapping.generated;\n"
+          + "import com.kantegasso.jsonmapping.JsonMapping.JsonMapper;\n"
+          + "@JsonMapper\n"
+          + "public class Secret {\n"
+          + "  private final String value;\n"
+          + "  Secret() { this.value = \"hidden\"; }\n"
+          + "}\n";
+
+  /* Read with fields: package-private fields are assigned directly. */
+  private static final String POINT =
+      "package com.kantegasso.jsonmapping.generated;\n"
+          + "import com.kantegasso.jsonmapping.JsonMapping.JsonMapper;\n"
+          + "@JsonMapper\n"
+          + "public class Point {\n"
+          + "  int x;\n"
+          + "  Integer y;\n"
+          + "  String label;\n"
+          + "}\n";
+
+  private Path directory;
+  private URLClassLoader classLoader;
+  /* The same sources compiled without the processor, so they are mapped with reflection. */
+  private Path reflectiveDirectory;
+  private URLClassLoader reflectiveClassLoader;
+
+  @Before
+  public void compile() throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    assumeNotNull(compiler);
+    directory = compile(compiler, true);
+    classLoader =
+        new URLClassLoader(new URL[] {directory.toUri().toURL()}, getClass().getClassLoader());
+    reflectiveDirectory = compile(compiler, false);
+    reflectiveClassLoader =
+        new URLClassLoader(
+            new URL[] {reflectiveDirectory.toUri().toURL()}, getClass().getClassLoader());
+  }
+
+  private static Path compile(JavaCompiler compiler, boolean generateMappers) throws IOException {
+    Path directory = Files.createTempDirectory("generated-mappers");
+    Path sources = Files.createDirectories(directory.resolve(PACKAGE.replace('.', '/')));
+    Files.write(sources.resolve("Account.java"), ACCOUNT.getBytes(StandardCharsets.UTF_8));
+    Files.write(sources.resolve("Secret.java"), SECRET.getBytes(StandardCharsets.UTF_8));
+    Files.write(sources.resolve("Point.java"), POINT.getBytes(StandardCharsets.UTF_8));
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    try (StandardJavaFileManager fileManager =
+        compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+      List<String> options =
+          Arrays.asList(
+              "-classpath", System.getProperty("java.class.path"), "-d", directory.toString());
+      JavaCompiler.CompilationTask task =
+          compiler.getTask(
+              null,
+              fileManager,
+              diagnostics,
+              options,
+              null,
+              fileManager.getJavaFileObjects(
+                  sources.resolve("Account.java").toFile(),
+                  sources.resolve("Secret.java").toFile(),
+                  sources.resolve("Point.java").toFile()));
+      task.setProcessors(
+          generateMappers
+              ? Collections.singletonList(new JsonMapperProcessor())
+              : Collections.emptyList());
+      assertTrue(task.call());
+    }
+    // The processor compiles cleanly, reporting types left to reflection only as notes.
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      assertEquals(diagnostic.toString(), Diagnostic.Kind.NOTE, diagnostic.getKind());
+    }
+    assertEquals(
+        generateMappers,
+        diagnostics.getDiagnostics().stream()
+            .anyMatch(note -> note.getMessage(null).startsWith("No JsonMapper generated")));
+    return directory;
+  }
+
+  @After
+  public void close() throws IOException {
+    close(classLoader, directory);
+    close(reflectiveClassLoader, reflectiveDirectory);
+  }
+
+  private static void close(URLClassLoader classLoader, Path directory) throws IOException {
+    if (classLoader != null) {
+      classLoader.close();
+    }
+    if (directory != null) {
+      try (Stream<Path> paths = Files.walk(directory)) {
+        paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+      }
+    }
+  }
+
+  @Test
+  public void testGeneratesMapperPerType() {
+    assertTrue(new File(directory.toFile(), "com/kantegasso/jsonmapping/generated/AccountJsonMapper.class").exists());
+    assertTrue(new File(directory.toFile(), "com/kantegasso/jsonmapping/generated/Account_OwnerJsonMapper.class").exists());
+    assertFalse(new File(directory.toFile(), "com/kantegasso/jsonmapping/generated/SecretJsonMapper.class").exists());
+  }
+
+  @Test
+  public void testRoundTripWithGeneratedMapperWithoutPrivateAccess() throws Exception {
+    Class<?> accountType = classLoader.loadClass(PACKAGE + ".Account");
+    Class<?> ownerType = classLoader.loadClass(PACKAGE + ".Account$Owner");
+    assertTrue(ClassMetadata.of(accountType).generatedMapper.isDefined());
+    assertTrue(ClassMetadata.of(ownerType).generatedMapper.isDefined());
+
+    Object account = accountType.getConstructor().newInstance();
+    accountType.getMethod("setName", String.class).invoke(account, "savings");
+    accountType.getMethod("setBalance", long.class).invoke(account, 1250L);
+    accountType.getMethod("setActive", boolean.class).invoke(account, true);
+    accountType
+        .getMethod("setOwner", ownerType)
+        .invoke(
+            account,
+            ownerType.getConstructor(String.class, int.class).newInstance("jondoe@example.com", 42));
+
+    // Private fields are read through their getters, so no private access is needed.
+    JsonMapping jsonMapping = new JsonMapping(false);
+    JSONObject json = jsonMapping.write.objectAsJson(account).get();
+    assertEquals("savings", json.getString("name"));
+    assertEquals(1250L, json.getLong("balance"));
+    assertTrue(json.getBoolean("active"));
+    assertEquals("jondoe@example.com", json.getJSONObject("owner").getString("email"));
+    assertEquals(42, json.getJSONObject("owner").getInt("age"));
+
+    Object read = jsonMapping.read.valueFromJson(json.toString(), accountType).get();
+    assertEquals("savings", accountType.getMethod("getName").invoke(read));
+    assertEquals(1250L, accountType.getMethod("getBalance").invoke(read));
+    Object owner = accountType.getMethod("getOwner").invoke(read);
+    assertEquals("jondoe@example.com", ownerType.getMethod("getEmail").invoke(owner));
+    assertEquals(42, ownerType.getMethod("getAge").invoke(owner));
+
+    Object streamed =
+        jsonMapping
+            .read
+            .valueFromStream(
+                new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8)),
+                accountType)
+            .get();
+    Method getOwner = accountType.getMethod("getOwner");
+    assertEquals(42, ownerType.getMethod("getAge").invoke(getOwner.invoke(streamed)));
+  }
+
+  @Test
+  public void testCachedMetadataDoesNotKeepClassLoaderReachable() throws Exception {
+    mapTypesOf(classLoader);
+    WeakReference<ClassLoader> discarded = new WeakReference<>(classLoader);
+    close(classLoader, directory);
+    classLoader = null;
+    directory = null;
+    for (int attempt = 0; attempt < 100 && discarded.get() != null; attempt++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(discarded.get());
+  }
+
+  /* Maps with the generated mapper and with reflection, promoting the types on the way. */
+  private static void mapTypesOf(ClassLoader classLoader) throws Exception {
+    JsonMapping jsonMapping = new JsonMapping(true, JsonMapping.AccessorStrategy.REFLECTION, 1);
+    Object account = classLoader.loadClass(PACKAGE + ".Account").getConstructor().newInstance();
+    assertTrue(jsonMapping.write.objectAsJson(account).isSuccess());
+    Object secret = Utils.invokePrivateConstuctor(classLoader.loadClass(PACKAGE + ".Secret")).get();
+    assertTrue(jsonMapping.write.objectAsJson(secret).isSuccess());
+    assertTrue(jsonMapping.write.objectAsJson(secret).isSuccess());
+  }
+
+  @Test
+  public void testUnsupportedTypeFallsBackToReflection() throws Exception {
+    Class<?> secretType = classLoader.loadClass(PACKAGE + ".Secret");
+    assertFalse(ClassMetadata.of(secretType).generatedMapper.isDefined());
+    Object secret = Utils.invokePrivateConstuctor(secretType).get();
+    JSONObject json = new JsonMapping(true).write.objectAsJson(secret).get();
+    assertEquals("hidden", json.getString("value"));
+  }
+
+  @Test
+  public void testNonPublicConstructorNeedsPrivateAccess() throws Exception {
+    Class<?> secretType = classLoader.loadClass(PACKAGE + ".Secret");
+    String json = "{\"value\": \"shown\"}";
+    assertTrue(
+        new JsonMapping(false).read.valueFromJson(json, secretType).getCause()
+            instanceof IllegalAccessException);
+    Object secret = new JsonMapping(true).read.valueFromJson(json, secretType).get();
+    assertEquals("shown", new JsonMapping(true).write.objectAsJson(secret).get().getString("value"));
+    // Allowing private access in one instance does not leak it to the others.
+    assertFalse(new JsonMapping(false).read.valueFromJson(json, secretType).isSuccess());
+  }
+
+  @Test
+  public void testGeneratedMappersReadAndWriteLikeReflection() throws Exception {
+    assertTrue(new File(directory.toFile(), "com/kantegasso/jsonmapping/generated/PointJsonMapper.class").exists());
+    assertFalse(new File(reflectiveDirectory.toFile(), "com/kantegasso/jsonmapping/generated/AccountJsonMapper.class").exists());
+    assertSameAsReflection(
+        "Account",
+        "{\"name\": \"savings\", \"balance\": 1250, \"active\": true,"
+            + " \"owner\": {\"email\": \"jondoe@example.com\", \"age\": 42}}",
+        // Setters are called with null, which fails for primitives.
+        "{\"name\": \"savings\", \"active\": true}",
+        "{\"name\": null, \"balance\": 1, \"active\": false, \"owner\": null}",
+        "{\"name\": \"savings\", \"balance\": \"lots\", \"active\": true}",
+        "{\"name\": \"savings\", \"balance\": 1e19, \"active\": true}",
+        "{\"name\": \"x\", \"balance\": 1, \"active\": true, \"owner\": {\"email\": \"e\"}}");
+    assertSameAsReflection(
+        "Point",
+        "{\"x\": 1, \"y\": 2, \"label\": \"a\"}",
+        // Fields fail for missing members.
+        "{\"x\": 1, \"label\": \"a\"}",
+        "{\"x\": 1, \"y\": null, \"label\": null}",
+        "{\"x\": \"one\", \"y\": 2, \"label\": \"a\"}",
+        "{\"x\": 2.5, \"y\": 2, \"label\": \"a\"}");
+  }
+
+  /*
+   * Reads each document with the generated mapper and with reflection, then writes what was read.
+   * Both must fail with the same error code, or write the same JSON.
+   */
+  private void assertSameAsReflection(String typeName, String... documents) throws Exception {
+    Class<?> generatedType = classLoader.loadClass(PACKAGE + "." + typeName);
+    Class<?> reflectiveType = reflectiveClassLoader.loadClass(PACKAGE + "." + typeName);
+    assertTrue(ClassMetadata.of(generatedType).generatedMapper.isDefined());
+    assertFalse(ClassMetadata.of(reflectiveType).generatedMapper.isDefined());
+    JsonMapping jsonMapping = new JsonMapping(true);
+    for (String document : documents) {
+      for (boolean streaming : new boolean[] {false, true}) {
+        Try<?> generated = read(jsonMapping, document, generatedType, streaming);
+        Try<?> reflective = read(jsonMapping, document, reflectiveType, streaming);
+        String message = typeName + " " + document + (streaming ? " streamed" : "");
+        assertEquals(message, reflective.isSuccess(), generated.isSuccess());
+        if (reflective.isFailure()) {
+          assertEquals(message, errorCode(reflective.getCause()), errorCode(generated.getCause()));
+          continue;
+        }
+        JSONObject expected = jsonMapping.write.objectAsJson(reflective.get()).get();
+        JSONObject actual = jsonMapping.write.objectAsJson(generated.get()).get();
+        assertTrue(message + ": " + expected + " but was " + actual, expected.similar(actual));
+      }
+    }
+  }
+
+  private static Try<?> read(
+      JsonMapping jsonMapping, String document, Class<?> type, boolean streaming) {
+    return streaming
+        ? jsonMapping.read.valueFromStream(
+            new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)), type)
+        : jsonMapping.read.valueFromJson(new JSONObject(document), type);
+  }
+
+  /* The innermost error code, as failures of setters are wrapped. */
+  private static String errorCode(Throwable failure) {
+    String code = failure.getClass().getName();
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof JsonMappingException) {
+        code = ((JsonMappingException) cause).errorCode;
+      }
+    }
+    return code;
+  }
+}
@@ -1,19 +1,41 @@
 package com.kantegasso.jsonmapping;
 
+import com.kantegasso.jsonmapping.error.JsonMappingException;
 import com.kantegasso.jsonmapping.stub.ApiTokenObject;
 import com.kantegasso.jsonmapping.stub.ApiTokenObjectStub;
 import com.kantegasso.jsonmapping.stub.ApiTokenObjectStubWithoutAnnotation;
+import com.kantegasso.jsonmapping.stub.ApiTokenView;
 import com.kantegasso.jsonmapping.stub.ApplicationSecretStub;
+import com.kantegasso.jsonmapping.stub.MetricSampleStub;
+import com.kantegasso.jsonmapping.stub.MetricSeriesStub;
+import com.kantegasso.jsonmapping.stub.PlanStub;
+import com.kantegasso.jsonmapping.stub.QuotaStub;
 import com.kantegasso.jsonmapping.stub.Repository;
 import com.kantegasso.jsonmapping.stub.ScimTenantConfigStub;
 import com.kantegasso.jsonmapping.stub.ScimTenantConfigStub.ScimProviderKind;
 import com.kantegasso.jsonmapping.stub.User;
 import io.vavr.control.Try;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.Assert;
 import org.junit.Test;
@@ -189,7 +211,8 @@ public class JsonMappingTest {
     expected.setUserKey("userkey");
     expected.setValidFor(1);
     JSONObject json =
-        Core.Write.writeJsonFromAccessors(expected, ApiTokenObject.class, 0, false).getOrNull();
+        Core.Write.writeJsonFromAccessors(expected, ApiTokenObject.class, 0, Settings.of(false))
+            .getOrNull();
     ApiTokenObject actual = new ApiTokenObjectStub();
     jsonMapping.read.populateInstanceFromJson(json, actual, ApiTokenObject.class);
     Assert.assertEquals(expected, actual);
@@ -225,4 +248,855 @@ public class JsonMappingTest {
     User actual = jsonMapping.read.valueFromJson(json, User.class).getOrNull();
     Assert.assertEquals(user, actual); // true
   }
+
+  @Test
+  public void testClassMetadataIsCachedPerType() {
+    ClassMetadata metadata = ClassMetadata.of(User.class);
+    Assert.assertSame(metadata, ClassMetadata.of(User.class));
+    Assert.assertTrue(metadata.hasJsonMapperAnnotation);
+    Assert.assertEquals(5, metadata.fields.size());
+  }
+
+  @Test
+  public void testMappingStrategiesAreDecidedPerType() {
+    Assert.assertEquals(
+        io.vavr.collection.List.of(ClassMetadata.ReadStrategy.CONSTRUCTOR, ClassMetadata.ReadStrategy.FIELDS),
+        ClassMetadata.of(ScimTenantConfigStub.class).readStrategies);
+    Assert.assertEquals(
+        io.vavr.collection.List.of(ClassMetadata.ReadStrategy.SETTERS, ClassMetadata.ReadStrategy.FIELDS),
+        ClassMetadata.of(ApiTokenObjectStub.class).readStrategies);
+    Assert.assertEquals(
+        io.vavr.collection.List.of(ClassMetadata.ReadStrategy.FIELDS),
+        ClassMetadata.of(User.class).readStrategies);
+    Assert.assertTrue(ClassMetadata.of(ApiTokenObject.class).writesAccessors);
+    Assert.assertFalse(ClassMetadata.of(User.class).writesAccessors);
+  }
+
+  @Test
+  public void testBadPayloadDoesNotDecideTheReadStrategy() {
+    MappingStatistics statistics = new MappingStatistics();
+    JsonMapping measured = jsonMapping.withMetrics(statistics);
+    // The constructor rejects the limit, so this one is read with the fields.
+    measured.read.valueFromJson(
+        "{\"name\": \"api\", \"limit\": -1, \"unit\": \"requests\"}", QuotaStub.class);
+    Assert.assertEquals(
+        new QuotaStub("api", 1),
+        measured
+            .read
+            .valueFromJson(
+                "{\"name\": \"api\", \"limit\": 1, \"unit\": \"requests\"}", QuotaStub.class)
+            .get());
+    Assert.assertEquals(
+        1,
+        statistics.strategyCount(
+            QuotaStub.class, MappingMetrics.Operation.READ, MappingMetrics.Strategy.CONSTRUCTOR));
+    Assert.assertEquals(
+        1,
+        statistics.strategyCount(
+            QuotaStub.class, MappingMetrics.Operation.READ, MappingMetrics.Strategy.FIELDS));
+  }
+
+  @Test
+  public void testAllNullObjectDoesNotDecideTheWriteStrategy() {
+    // None of the accessors return a value, so this one is written with the fields.
+    Assert.assertEquals(
+        "requests", jsonMapping.write.objectAsJson(new QuotaStub()).get().getString("unit"));
+    JSONObject json = jsonMapping.write.objectAsJson(new QuotaStub("api", 1)).get();
+    Assert.assertEquals(1, json.getInt("limit"));
+    Assert.assertFalse(json.has("unit"));
+  }
+
+  @Test
+  public void testClearCachedTypes() {
+    ClassMetadata metadata = ClassMetadata.of(User.class);
+    JsonMapping.clearCachedTypes();
+    Assert.assertNotSame(metadata, ClassMetadata.of(User.class));
+  }
+
+  @Test
+  public void testRoundTripWithEachAccessorStrategy() {
+    ApiTokenObjectStub apiToken = new ApiTokenObjectStub();
+    apiToken.setAlias("alias");
+    apiToken.setCreatedAt(3);
+    apiToken.setUserKey("userkey");
+    ScimTenantConfigStub tenantConfig =
+        new ScimTenantConfigStub(
+            "1", "Azure", ApplicationSecretStub.create("a", "b"), ScimProviderKind.AZURE);
+    for (JsonMapping.AccessorStrategy strategy : JsonMapping.AccessorStrategy.values()) {
+      JsonMapping mapping = new JsonMapping(true, strategy);
+      String apiTokenJson = mapping.write.objectAsJsonString(apiToken).getOrElse("");
+      Assert.assertEquals(
+          strategy.name(),
+          apiToken,
+          mapping.read.valueFromJson(apiTokenJson, ApiTokenObjectStub.class).getOrNull());
+      String tenantConfigJson = mapping.write.objectAsJsonString(tenantConfig).getOrElse("");
+      Assert.assertEquals(
+          strategy.name(),
+          tenantConfig,
+          mapping.read.valueFromJson(tenantConfigJson, ScimTenantConfigStub.class).getOrNull());
+    }
+  }
+
+  @Test
+  public void testPromotesHotTypesToCompiledAccessors() {
+    JsonMapping.clearCachedTypes();
+    ScimTenantConfigStub tenantConfig =
+        new ScimTenantConfigStub(
+            "1", "Azure", ApplicationSecretStub.create("a", "b"), ScimProviderKind.AZURE);
+    JsonMapping mapping = new JsonMapping(true, JsonMapping.AccessorStrategy.REFLECTION, 3);
+    String cold = mapping.write.objectAsJsonString(tenantConfig).get();
+    Assert.assertFalse(JsonMapping.promotedTypes().containsKey(ScimTenantConfigStub.class));
+    for (int call = 0; call < 3; call++) {
+      String json = mapping.write.objectAsJsonString(tenantConfig).get();
+      Assert.assertTrue(new JSONObject(cold).similar(new JSONObject(json)));
+      Assert.assertEquals(
+          tenantConfig, mapping.read.valueFromJson(json, ScimTenantConfigStub.class).get());
+    }
+    Assert.assertTrue(JsonMapping.promotedTypes().containsKey(ScimTenantConfigStub.class));
+    Assert.assertTrue(JsonMapping.promotedTypes().containsKey(ApplicationSecretStub.class));
+
+    JsonMapping.clearCachedTypes();
+    JsonMapping neverPromoted = new JsonMapping(true, JsonMapping.AccessorStrategy.REFLECTION, 0);
+    for (int call = 0; call < 5; call++) {
+      neverPromoted.write.objectAsJsonString(tenantConfig).get();
+    }
+    Assert.assertTrue(JsonMapping.promotedTypes().isEmpty());
+
+    // A strategy picked without a threshold is kept, however hot the type.
+    JsonMapping pinned = new JsonMapping(true, JsonMapping.AccessorStrategy.REFLECTION);
+    for (int call = 0; call < 2000; call++) {
+      pinned.write.objectAsJsonString(tenantConfig).get();
+    }
+    Assert.assertTrue(JsonMapping.promotedTypes().isEmpty());
+  }
+
+  @Test
+  public void testObjectToWriterMatchesObjectAsJson() {
+    ScimTenantConfigStub tenantConfig =
+        new ScimTenantConfigStub(
+            "1", "Azure", ApplicationSecretStub.create("a", "b"), ScimProviderKind.AZURE);
+    StringWriter writer = new StringWriter();
+    Assert.assertTrue(jsonMapping.write.objectToWriter(tenantConfig, writer).isSuccess());
+    JSONObject expected = new JSONObject(jsonMapping.write.objectAsJsonString(tenantConfig).get());
+    Assert.assertTrue(expected.similar(new JSONObject(writer.toString())));
+    Assert.assertEquals(
+        tenantConfig,
+        jsonMapping.read.valueFromJson(writer.toString(), ScimTenantConfigStub.class).getOrNull());
+  }
+
+  @Test
+  public void testListAsJsonArrayAndWriteArray() {
+    List<ScimTenantConfigStub> tenantConfigs =
+        Arrays.asList(
+            new ScimTenantConfigStub(
+                "1", "Azure", ApplicationSecretStub.create("a", "b"), ScimProviderKind.AZURE),
+            null,
+            new ScimTenantConfigStub(
+                "2", "Okta", ApplicationSecretStub.create("c", "d"), ScimProviderKind.AZURE));
+    JSONArray array =
+        jsonMapping.write.listAsJsonArray(tenantConfigs, ScimTenantConfigStub.class).get();
+    Assert.assertEquals(3, array.length());
+    Assert.assertTrue(array.isNull(1));
+    Assert.assertTrue(
+        array.getJSONObject(2).similar(jsonMapping.write.objectAsJson(tenantConfigs.get(2)).get()));
+
+    StringWriter writer = new StringWriter();
+    Assert.assertTrue(jsonMapping.write.writeArray(tenantConfigs.iterator(), writer).isSuccess());
+    Assert.assertTrue(new JSONArray(array.toString()).similar(new JSONArray(writer.toString())));
+
+    Assert.assertTrue(
+        jsonMapping
+            .write
+            .listAsJsonArray(
+                Collections.singletonList(new ApiTokenObjectStubWithoutAnnotation()),
+                ApiTokenObjectStubWithoutAnnotation.class)
+            .isFailure());
+  }
+
+  @Test
+  public void testListFromJsonAndIterateArray() {
+    List<ScimTenantConfigStub> expected =
+        Arrays.asList(
+            new ScimTenantConfigStub(
+                "1", "Azure", ApplicationSecretStub.create("a", "b"), ScimProviderKind.AZURE),
+            null,
+            new ScimTenantConfigStub(
+                "2", "Okta", ApplicationSecretStub.create("c", "d"), ScimProviderKind.AZURE));
+    String json =
+        jsonMapping.write.listAsJsonArray(expected, ScimTenantConfigStub.class).get().toString();
+    Assert.assertEquals(
+        expected, jsonMapping.read.listFromJson(json, ScimTenantConfigStub.class).get());
+    Assert.assertEquals(
+        expected,
+        jsonMapping
+            .read
+            .listFromStream(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                ScimTenantConfigStub.class)
+            .get());
+
+    Iterator<Try<ScimTenantConfigStub>> elements =
+        jsonMapping.read.iterateArray(new StringReader(json), ScimTenantConfigStub.class);
+    for (ScimTenantConfigStub tenantConfig : expected) {
+      Assert.assertTrue(elements.hasNext());
+      Assert.assertEquals(tenantConfig, elements.next().get());
+    }
+    Assert.assertFalse(elements.hasNext());
+
+    Iterator<Try<ScimTenantConfigStub>> truncated =
+        jsonMapping
+            .read
+            .iterateArray(
+                new StringReader(json.substring(0, json.length() - 1)),
+                ScimTenantConfigStub.class);
+    Assert.assertTrue(truncated.next().isSuccess());
+    Assert.assertNull(truncated.next().get());
+    Assert.assertTrue(truncated.next().isSuccess());
+    Assert.assertTrue(truncated.next().isFailure());
+    Assert.assertFalse(truncated.hasNext());
+    Assert.assertTrue(
+        jsonMapping.read.listFromJson("[1]", ScimTenantConfigStub.class).isFailure());
+  }
+
+  @Test
+  public void testNdjsonRoundTripInParallel() throws IOException {
+    List<ScimTenantConfigStub> expected = new ArrayList<>();
+    for (int index = 0; index < 2000; index++) {
+      expected.add(
+          new ScimTenantConfigStub(
+              String.valueOf(index),
+              "Azure",
+              ApplicationSecretStub.create("a", "b"),
+              ScimProviderKind.AZURE));
+    }
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    Assert.assertTrue(jsonMapping.write.ndjson(expected.parallelStream(), stream).isSuccess());
+    byte[] lines = stream.toByteArray();
+
+    List<ScimTenantConfigStub> actual =
+        jsonMapping
+            .read
+            .ndjson(new ByteArrayInputStream(lines), ScimTenantConfigStub.class)
+            .parallel()
+            .map(Try::get)
+            .collect(Collectors.toList());
+    Assert.assertEquals(expected, actual);
+
+    Path file = Files.createTempFile("tenants", ".ndjson");
+    try {
+      Files.write(file, "\n{\"tenantId\": 1\n".getBytes(StandardCharsets.UTF_8));
+      Files.write(file, lines, StandardOpenOption.APPEND);
+      try (Stream<Try<ScimTenantConfigStub>> read =
+          jsonMapping.read.ndjson(file, ScimTenantConfigStub.class).get()) {
+        List<Try<ScimTenantConfigStub>> results = read.collect(Collectors.toList());
+        Assert.assertEquals(expected.size() + 1, results.size());
+        Assert.assertTrue(results.get(0).isFailure());
+        Assert.assertEquals(expected.get(0), results.get(1).get());
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testValueFromFileDecodesMappedFile() throws IOException {
+    ScimTenantConfigStub expected =
+        new ScimTenantConfigStub(
+            "1",
+            "\u00c6\u00f8\u00e5 \ud83d\ude00",
+            ApplicationSecretStub.create("a", "b"),
+            ScimProviderKind.AZURE);
+    String json = jsonMapping.write.objectAsJsonString(expected).get();
+    Path file = Files.createTempFile("tenant", ".json");
+    try {
+      Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+      Assert.assertEquals(
+          expected, jsonMapping.read.valueFromFile(file, ScimTenantConfigStub.class).get());
+      Assert.assertTrue(
+          new JSONObject(json).similar(jsonMapping.read.jsonObjectFromFile(file.toFile()).get()));
+
+      // Windows of four bytes split the multi-byte characters between windows, mapped or read.
+      for (long minMappedSize : new long[] {0, Long.MAX_VALUE}) {
+        StringBuilder decoded = new StringBuilder();
+        try (MappedFileReader reader = new MappedFileReader(file, 4, minMappedSize)) {
+          char[] buffer = new char[5];
+          for (int count = reader.read(buffer); count != -1; count = reader.read(buffer)) {
+            decoded.append(buffer, 0, count);
+          }
+        }
+        Assert.assertEquals(json, decoded.toString());
+      }
+    } finally {
+      Files.delete(file);
+    }
+    Assert.assertTrue(
+        jsonMapping.read.valueFromFile(file, ScimTenantConfigStub.class).isFailure());
+  }
+
+  @Test
+  public void testObjectToStreamWritesUtf8() {
+    ApiTokenObjectStub apiToken = new ApiTokenObjectStub();
+    apiToken.setAlias("\u00e6\u00f8\u00e5 \"quoted\"");
+    apiToken.setValidFor(1);
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    Assert.assertTrue(
+        jsonMapping.write.objectToStream(apiToken, ApiTokenObject.class, stream).isSuccess());
+    ApiTokenObjectStub actual = new ApiTokenObjectStub();
+    jsonMapping.read.populateInstanceFromJson(
+        new JSONObject(new String(stream.toByteArray(), StandardCharsets.UTF_8)), actual);
+    Assert.assertEquals(apiToken, actual);
+  }
+
+  @Test
+  public void testObjectAsBytesEncodesUtf8() {
+    ApiTokenObjectStub apiToken = new ApiTokenObjectStub();
+    apiToken.setValidFor(1);
+    char[] large = new char[Utf8Buffer.MAX_POOLED_SIZE];
+    Arrays.fill(large, '\u00e5');
+    for (String alias :
+        Arrays.asList(
+            "plain", "\u00e6\u00f8\u00e5 \u20ac \ud83d\ude00", "lone \ud83d and \ude00", new String(large))) {
+      apiToken.setAlias(alias);
+      // The stream is encoded by the JDK.
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      jsonMapping.write.objectToStream(apiToken, ApiTokenObject.class, expected).get();
+      Assert.assertArrayEquals(
+          expected.toByteArray(),
+          jsonMapping.write.objectAsBytes(apiToken, ApiTokenObject.class).get());
+    }
+
+    apiToken.setAlias("\u00e6\u00f8\u00e5");
+    byte[] expected = jsonMapping.write.objectAsBytes(apiToken, ApiTokenObject.class).get();
+    ByteBuffer small = ByteBuffer.allocate(expected.length - 1);
+    Throwable tooSmall = jsonMapping.write.objectTo(apiToken, ApiTokenObject.class, small).getCause();
+    Assert.assertEquals("JSON-PGOQ8NGIMB", ((JsonMappingException) tooSmall).errorCode);
+    Assert.assertEquals(0, small.position());
+
+    ByteBuffer buffer = ByteBuffer.allocate(expected.length + 2);
+    buffer.put((byte) ' ');
+    Assert.assertEquals(
+        expected.length,
+        (int) jsonMapping.write.objectTo(apiToken, ApiTokenObject.class, buffer).get());
+    Assert.assertEquals(expected.length + 1, buffer.position());
+    Assert.assertArrayEquals(
+        expected, Arrays.copyOfRange(buffer.array(), 1, expected.length + 1));
+    Assert.assertTrue(
+        jsonMapping
+            .write
+            .objectAsBytes(new ApiTokenObjectStubWithoutAnnotation())
+            .isFailure());
+  }
+
+  @Test
+  public void testNamesAreEscapedOnceAndWrittenAsIs() throws IOException {
+    JsonWriter.Name name = new JsonWriter.Name("say \"h\u00e6\"");
+    Assert.assertEquals("\"say \\\"h\u00e6\\\"\":", new String(name.chars));
+    Assert.assertArrayEquals(new String(name.chars).getBytes(StandardCharsets.UTF_8), name.utf8);
+
+    StringWriter chars = new StringWriter();
+    new JsonWriter(chars).beginObject().name(name).value(1).endObject().flush();
+    Utf8Buffer bytes = Utf8Buffer.acquire();
+    try {
+      new JsonWriter(bytes).beginObject().name(name).value(1).endObject().flush();
+      Assert.assertEquals(1, new JSONObject(chars.toString()).getInt("say \"h\u00e6\""));
+      Assert.assertArrayEquals(
+          chars.toString().getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+    } finally {
+      bytes.close();
+    }
+  }
+
+  @Test
+  public void testAccessorNamesAndBasicTypes() {
+    Assert.assertEquals("userKey", Utils.asField("getUserKey"));
+    Assert.assertEquals("active", Utils.asField("isActive"));
+    Assert.assertEquals("getter", Utils.asField("setGetter"));
+    Assert.assertTrue(Try.of(() -> Utils.asField("userKey")).isFailure());
+
+    Assert.assertTrue(Utils.isBasicJavaObject(int.class));
+    Assert.assertTrue(Utils.isBasicJavaObject("value"));
+    Assert.assertTrue(Utils.isBasicJavaObject(ScimProviderKind.AZURE));
+    Assert.assertFalse(Utils.isBasicJavaObject(User.class));
+    Assert.assertTrue(Utils.isJavaLangNumber(long.class));
+    Assert.assertTrue(Utils.isJavaLangNumber(Double.class));
+    Assert.assertFalse(Utils.isJavaLangNumber(Object.class));
+    Assert.assertFalse(Utils.isJavaLangNumber(null));
+    Assert.assertEquals(Integer.class, Utils.convertPrimitiveType(int.class));
+    Assert.assertEquals(String.class, Utils.convertPrimitiveType(String.class));
+  }
+
+  @Test
+  public void testNumbersAreConvertedToDeclaredTypeWithinRange() {
+    String json = "{\"name\": \"a\", \"count\": 2.9, \"value\": 1, \"bucket\": 70000000000e-1}";
+    Assert.assertEquals(
+        "JSON-QZNJUGUSS7",
+        ((JsonMappingException)
+                jsonMapping.read.valueFromJson(json, MetricSampleStub.class).getCause())
+            .errorCode);
+    Assert.assertEquals(
+        "JSON-QZNJUGUSS7",
+        ((JsonMappingException)
+                jsonMapping
+                    .read
+                    .valueFromReader(new StringReader(json), MetricSampleStub.class)
+                    .getCause())
+            .errorCode);
+    // Setters fail too, rather than skip the property.
+    JSONObject token = new JSONObject("{\"createdAt\": 0, \"validFor\": 1e19}");
+    Assert.assertEquals(
+        "JSON-QZNJUGUSS7",
+        ((JsonMappingException)
+                jsonMapping.read.valueFromJson(token, ApiTokenObjectStub.class).getCause().getCause())
+            .errorCode);
+    json = json.replace("70000000000e-1", "7e0");
+    MetricSampleStub expected = new MetricSampleStub("a", 2, 1, 7);
+    Assert.assertEquals(expected, jsonMapping.read.valueFromJson(json, MetricSampleStub.class).get());
+    Assert.assertEquals(
+        expected,
+        jsonMapping.read.valueFromReader(new StringReader(json), MetricSampleStub.class).get());
+
+    Assert.assertEquals((byte) -128, NumberConversion.convert(-128L, byte.class));
+    Assert.assertEquals(Long.MIN_VALUE, NumberConversion.convert(-0x1p63, Long.class));
+    Assert.assertEquals(
+        new java.math.BigDecimal("0.1"), NumberConversion.convert(0.1d, java.math.BigDecimal.class));
+    Assert.assertEquals(
+        java.math.BigInteger.TEN, NumberConversion.convert(new java.math.BigDecimal("10.5"), java.math.BigInteger.class));
+    for (Number outOfRange :
+        Arrays.<Number>asList(
+            128, 0x1p63, Double.NaN, new java.math.BigInteger("9223372036854775808"))) {
+      Assert.assertTrue(Try.of(() -> NumberConversion.convert(outOfRange, byte.class)).isFailure());
+    }
+    Assert.assertTrue(Try.of(() -> NumberConversion.convert(0x1p63, long.class)).isFailure());
+    for (Number notFinite : Arrays.<Number>asList(Double.NaN, Float.POSITIVE_INFINITY)) {
+      for (Class<?> type : Arrays.asList(java.math.BigDecimal.class, java.math.BigInteger.class)) {
+        Assert.assertEquals(
+            "JSON-QZNJUGUSS7",
+            ((JsonMappingException)
+                    Try.of(() -> NumberConversion.convert(notFinite, type)).getCause())
+                .errorCode);
+      }
+    }
+  }
+
+  @Test
+  public void testMetricsRecordCallsStrategiesBytesAndFailures() {
+    MappingStatistics statistics = new MappingStatistics();
+    JsonMapping measured = jsonMapping.withMetrics(statistics);
+    ScimTenantConfigStub config =
+        new ScimTenantConfigStub(
+            "1", "Azure", ApplicationSecretStub.create("a", "b"), ScimProviderKind.AZURE);
+    byte[] bytes = measured.write.objectAsBytes(config).get();
+    Assert.assertEquals(
+        config,
+        measured
+            .read
+            .valueFromJson(new String(bytes, StandardCharsets.UTF_8), ScimTenantConfigStub.class)
+            .get());
+    Assert.assertTrue(
+        measured.read.valueFromJson("{\"alias\": 1", ApiTokenObjectStub.class).isFailure());
+    Assert.assertTrue(
+        measured.write.objectAsJson(new ApiTokenObjectStubWithoutAnnotation()).isFailure());
+
+    MappingMetrics.Operation write = MappingMetrics.Operation.WRITE;
+    MappingMetrics.Operation read = MappingMetrics.Operation.READ;
+    Assert.assertEquals(1, statistics.calls(ScimTenantConfigStub.class, write));
+    Assert.assertEquals(1, statistics.calls(ScimTenantConfigStub.class, read));
+    Assert.assertEquals(bytes.length, statistics.bytes(ScimTenantConfigStub.class, write));
+    Assert.assertEquals(bytes.length, statistics.bytes(ScimTenantConfigStub.class, read));
+    Assert.assertEquals(
+        1,
+        statistics.strategyCount(
+            ScimTenantConfigStub.class, read, MappingMetrics.Strategy.CONSTRUCTOR));
+    Assert.assertEquals(
+        1,
+        statistics.strategyCount(
+            ApplicationSecretStub.class, read, MappingMetrics.Strategy.CONSTRUCTOR)
+            + statistics.strategyCount(
+                ApplicationSecretStub.class, read, MappingMetrics.Strategy.SETTERS)
+            + statistics.strategyCount(
+                ApplicationSecretStub.class, read, MappingMetrics.Strategy.FIELDS));
+    Assert.assertTrue(statistics.latencyPercentile(ScimTenantConfigStub.class, read, 99) > 0);
+    Assert.assertEquals(1, statistics.failures(ApiTokenObjectStub.class, read));
+    Assert.assertEquals(
+        1, statistics.failures(ApiTokenObjectStubWithoutAnnotation.class, write));
+    Assert.assertEquals(
+        2, statistics.failuresByErrorCode().values().stream().mapToLong(Long::longValue).sum());
+
+    // The original instance is not measured.
+    jsonMapping.write.objectAsBytes(config).get();
+    Assert.assertEquals(1, statistics.calls(ScimTenantConfigStub.class, write));
+
+    MappingStatistics.Histogram histogram = new MappingStatistics.Histogram();
+    for (long nanos = 1; nanos <= 1000; nanos++) {
+      histogram.record(nanos);
+    }
+    Assert.assertEquals(1, histogram.percentile(0));
+    Assert.assertTrue(Math.abs(histogram.percentile(50) - 500) <= 500 / 8);
+    Assert.assertTrue(Math.abs(histogram.percentile(100) - 1000) <= 1000 / 8);
+
+    // Iterated and NDJSON reads are measured per element.
+    MappingStatistics elements = new MappingStatistics();
+    JsonMapping measuredElements = jsonMapping.withMetrics(elements);
+    String json = new String(bytes, StandardCharsets.UTF_8);
+    measuredElements
+        .read
+        .iterateArray(new StringReader("[" + json + ", {]"), ScimTenantConfigStub.class)
+        .forEachRemaining(_element -> {});
+    measuredElements
+        .read
+        .ndjson(
+            new ByteArrayInputStream((json + "\n").getBytes(StandardCharsets.UTF_8)),
+            ScimTenantConfigStub.class)
+        .forEach(_value -> {});
+    Assert.assertEquals(3, elements.calls(ScimTenantConfigStub.class, read));
+    Assert.assertEquals(1, elements.failures(ScimTenantConfigStub.class, read));
+    Assert.assertEquals(bytes.length, elements.bytes(ScimTenantConfigStub.class, read));
+    Assert.assertTrue(
+        measuredElements
+            .write
+            .ndjson(Stream.of(config, config), new ByteArrayOutputStream())
+            .isSuccess());
+    Assert.assertEquals(2, elements.calls(ScimTenantConfigStub.class, write));
+    Assert.assertEquals(2L * bytes.length, elements.bytes(ScimTenantConfigStub.class, write));
+  }
+
+  @Test
+  public void testProjectionSkipsUnboundMembersAndReportsTheirSize() {
+    String skippedGroup = "{\"members\": [\"a\", {\"b\": \"}]\\\"\"}], \"note\": \"\u00e9\"}";
+    String config =
+        "{\"tenantId\": \"1\", \"group\": "
+            + skippedGroup
+            + ", \"tenantName\": \"Azure\", \"size\": -1.5e3,"
+            + " \"applicationSecret\": {\"salt\": \"a\", \"hashed\": \"b\", \"active\": true},"
+            + " \"kind\": \"AZURE\"}";
+    Projection<ScimTenantConfigStub> projection =
+        jsonMapping.read.projectFromJson(config, ScimTenantConfigStub.class).get();
+    Assert.assertEquals(
+        new ScimTenantConfigStub(
+            "1", "Azure", ApplicationSecretStub.create("a", "b"), ScimProviderKind.AZURE),
+        projection.value());
+    Assert.assertEquals(
+        skippedGroup.getBytes(StandardCharsets.UTF_8).length
+            + "-1.5e3".length()
+            + "true".length(),
+        projection.skippedBytes());
+
+    String user =
+        "{\"ID\": 8777, \"username\": \"jondoe\", \"email\": \"jondoe@example.com\","
+            + " \"groups\": [\"group 1\"], \"contacts\": [{\"username\": \"x\"}]}";
+    Projection<User> partial =
+        jsonMapping
+            .read
+            .projectFromJson(user, User.class, new HashSet<>(Arrays.asList("username", "email")))
+            .get();
+    Assert.assertEquals("jondoe", partial.value().getUsername());
+    Assert.assertEquals("jondoe@example.com", partial.value().getEmail());
+    Assert.assertNull(partial.value().getGroups());
+    Assert.assertTrue(partial.value().getContacts().isEmpty());
+    Assert.assertEquals(
+        "8777".length() + "[\"group 1\"]".length() + "[{\"username\": \"x\"}]".length(),
+        partial.skippedBytes());
+
+    Assert.assertEquals(
+        "JSON-5Y5RSV7IKU",
+        ((JsonMappingException)
+                jsonMapping
+                    .read
+                    .projectFromJson(user, User.class, Collections.singleton("name"))
+                    .getCause())
+            .errorCode);
+    Assert.assertTrue(
+        jsonMapping
+            .read
+            .projectFromJson("{\"username\": \"a\", \"groups\": [1, {\"x\": 2}", User.class)
+            .isFailure());
+  }
+
+  @Test
+  public void testLazyViewDecodesPropertiesOnFirstAccess() {
+    String json =
+        "{\"alias\": \"token\", \"createdAt\": 1700000000, \"extra\": {\"a\": [\"}\"]},"
+            + " \"salt\": [1,, 2], \"userKey\": \"\u00e6\u00f8\u00e5\"}";
+    ApiTokenObject view = jsonMapping.read.lazyView(json, ApiTokenObject.class).get();
+    Assert.assertEquals("token", view.getAlias());
+    Assert.assertSame(view.getAlias(), view.getAlias());
+    Assert.assertEquals(1700000000L, view.getCreatedAt());
+    Assert.assertEquals(0L, view.getValidFor());
+    Assert.assertNull(view.getHashed());
+    view.setAlias("renamed");
+    Assert.assertEquals("renamed", view.getAlias());
+    // The invalid member is only decoded, and rejected, when it is read.
+    try {
+      view.getSalt();
+      Assert.fail();
+    } catch (JsonMappingException e) {
+      Assert.assertEquals("JSON-VU2PYGKKZQ", e.errorCode);
+    }
+
+    ApiTokenObject fromBytes =
+        jsonMapping
+            .read
+            .lazyView(json.getBytes(StandardCharsets.UTF_8), ApiTokenObject.class)
+            .get();
+    Assert.assertEquals("\u00e6\u00f8\u00e5", fromBytes.getUserKey());
+
+    Assert.assertEquals(
+        "JSON-BGO8FTYXOE",
+        ((JsonMappingException)
+                jsonMapping.read.lazyView(json, ApiTokenObjectStub.class).getCause())
+            .errorCode);
+    Assert.assertTrue(
+        jsonMapping.read.lazyView("{\"alias\": [\"token\"", ApiTokenObject.class).isFailure());
+
+    ApiTokenView withDefaults =
+        jsonMapping.read.lazyView("{\"alias\": \"a\", \"validFor\": 5}", ApiTokenView.class).get();
+    Assert.assertEquals("token a", withDefaults.describe());
+    Assert.assertEquals(15L, withDefaults.validUntil(10));
+  }
+
+  @Test
+  public void testMergePatchSetsOnlyPatchedPropertiesAndDiffIsMinimal() {
+    ApiTokenObjectStub token = new ApiTokenObjectStub();
+    token.setAlias("token");
+    token.setSalt("salt");
+    token.setValidFor(10);
+    JSONObject patch = new JSONObject().put("alias", "renamed").put("salt", JSONObject.NULL);
+    Assert.assertTrue(jsonMapping.read.applyMergePatch(patch, token).isSuccess());
+    Assert.assertEquals("renamed", token.getAlias());
+    Assert.assertNull(token.getSalt());
+    Assert.assertEquals(10, token.getValidFor());
+
+    // A value that does not apply fails the patch before anything is set.
+    Try<Void> failed =
+        jsonMapping
+            .read
+            .applyMergePatch(
+                new JSONObject().put("alias", "other").put("validFor", "forever"), token);
+    Assert.assertEquals("JSON-H5S0AZ8UVC", ((JsonMappingException) failed.getCause()).errorCode);
+    Assert.assertEquals("renamed", token.getAlias());
+
+    ScimTenantConfigStub before =
+        new ScimTenantConfigStub(
+            "1", "Azure", ApplicationSecretStub.create("a", "b"), ScimProviderKind.AZURE);
+    ScimTenantConfigStub after =
+        new ScimTenantConfigStub(
+            "1", "Okta", ApplicationSecretStub.create("a", "c"), ScimProviderKind.AZURE);
+    JSONObject diff = jsonMapping.write.diff(before, after).get();
+    Assert.assertEquals(
+        new JSONObject("{\"tenantName\": \"Okta\", \"applicationSecret\": {\"hashed\": \"c\"}}")
+            .toMap(),
+        diff.toMap());
+    ApplicationSecretStub secret = before.getApplicationSecret();
+    Assert.assertTrue(
+        jsonMapping
+            .read
+            .applyMergePatch(
+                new ByteArrayInputStream(diff.toString().getBytes(StandardCharsets.UTF_8)), before)
+            .isSuccess());
+    Assert.assertEquals(after, before);
+    // Nested objects are patched in place.
+    Assert.assertSame(secret, before.getApplicationSecret());
+    Assert.assertTrue(jsonMapping.write.diff(before, after).get().isEmpty());
+  }
+
+  @Test
+  public void testMergePatchMergesNestedObjectsWithoutPrivateAccess() {
+    PlanStub.Quota quota = new PlanStub.Quota();
+    quota.setRequests(10);
+    quota.setStorage(5);
+    PlanStub plan = new PlanStub();
+    plan.setName("basic");
+    plan.setQuota(quota);
+    JSONObject patch =
+        new JSONObject().put("name", "pro").put("quota", new JSONObject().put("requests", 20));
+    Assert.assertTrue(new JsonMapping().read.applyMergePatch(patch, plan).isSuccess());
+    Assert.assertEquals("pro", plan.getName());
+    Assert.assertSame(quota, plan.getQuota());
+    Assert.assertEquals(Integer.valueOf(20), quota.getRequests());
+    Assert.assertEquals(Integer.valueOf(5), quota.getStorage());
+  }
+
+  @Test
+  public void testObjectToWriterWithoutAnnotationFails() {
+    StringWriter writer = new StringWriter();
+    Assert.assertTrue(
+        jsonMapping
+            .write
+            .objectToWriter(new ApiTokenObjectStubWithoutAnnotation(), writer)
+            .isFailure());
+    Assert.assertEquals("", writer.toString());
+  }
+
+  @Test
+  public void testValueFromStream() {
+    ScimTenantConfigStub expected =
+        new ScimTenantConfigStub(
+            "1", "Azure", ApplicationSecretStub.create("a", "b"), ScimProviderKind.AZURE);
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    jsonMapping.write.objectToStream(expected, stream);
+    ScimTenantConfigStub actual =
+        jsonMapping
+            .read
+            .valueFromStream(
+                new ByteArrayInputStream(stream.toByteArray()), ScimTenantConfigStub.class)
+            .getOrNull();
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testValueFromReaderWithSettersAndFields() {
+    String apiTokenJson =
+        "{\"alias\": \"alias\", \"validFor\": 2, \"unknown\": {\"a\": [1, {}]}, \"hashed\": null}";
+    ApiTokenObjectStub apiToken =
+        jsonMapping
+            .read
+            .valueFromReader(new StringReader(apiTokenJson), ApiTokenObjectStub.class)
+            .getOrNull();
+    Assert.assertEquals("alias", apiToken.getAlias());
+    Assert.assertEquals(2, apiToken.getValidFor());
+
+    String userJson =
+        "{\"ID\": 8777, \"username\": \"jondoe\", \"groups\": [\"group 1\", \"group 2\"]}";
+    User user =
+        jsonMapping.read.valueFromReader(new StringReader(userJson), User.class).getOrNull();
+    Assert.assertEquals(8777, user.getID());
+    Assert.assertEquals("jondoe", user.getUsername());
+    Assert.assertEquals(Arrays.asList("group 1", "group 2"), user.getGroups());
+  }
+
+  @Test
+  public void testValueFromStreamFailsOnMalformedJson() {
+    Assert.assertTrue(
+        jsonMapping
+            .read
+            .valueFromReader(new StringReader("{\"alias\": \"alias\""), ApiTokenObjectStub.class)
+            .isFailure());
+    Assert.assertTrue(
+        jsonMapping
+            .read
+            .valueFromReader(new StringReader("{\"alias\": 1} {"), ApiTokenObjectStub.class)
+            .isFailure());
+    Assert.assertTrue(
+        jsonMapping
+            .read
+            .valueFromReader(
+                new StringReader("{\"alias\": \"alias\"}"), ApiTokenObjectStubWithoutAnnotation.class)
+            .isFailure());
+  }
+
+  @Test
+  public void testReadImmutableObjectDefaultsMissingPrimitives() {
+    String json = "{\"name\": \"requests\", \"value\": 1.5, \"unknown\": true}";
+    MetricSampleStub expected = new MetricSampleStub("requests", 0, 1.5, 0);
+    Assert.assertEquals(
+        expected, jsonMapping.read.valueFromJson(json, MetricSampleStub.class).getOrNull());
+    Assert.assertEquals(
+        expected,
+        jsonMapping.read.valueFromReader(new StringReader(json), MetricSampleStub.class).getOrNull());
+  }
+
+  @Test
+  public void testMappingFailuresAreStacklessWithLazyMessages() {
+    Throwable missingAnnotation =
+        jsonMapping
+            .write
+            .objectAsJson(new ApiTokenObjectStubWithoutAnnotation())
+            .getCause();
+    Assert.assertTrue(missingAnnotation instanceof JsonMappingException);
+    Assert.assertEquals("JSON-LK5AWB99NQ", ((JsonMappingException) missingAnnotation).errorCode);
+    Assert.assertEquals(0, missingAnnotation.getStackTrace().length);
+    Assert.assertTrue(missingAnnotation.getMessage().contains("ApiTokenObjectStubWithoutAnnotation"));
+
+    Throwable malformed =
+        jsonMapping
+            .read
+            .valueFromReader(new StringReader("{\"alias\": \"alias\""), ApiTokenObjectStub.class)
+            .getCause();
+    Assert.assertEquals("JSON-VU2PYGKKZQ", ((JsonMappingException) malformed).errorCode);
+    Assert.assertEquals(0, malformed.getStackTrace().length);
+    Assert.assertTrue(malformed.getMessage().contains("JSON-VU2PYGKKZQ"));
+  }
+
+  @Test
+  public void testReadCollectionsAndMapsWithDeclaredElementTypes() {
+    String json =
+        "{\"name\": \"requests\","
+            + " \"samples\": [{\"name\": \"a\", \"count\": 1}, null, {\"name\": \"b\", \"bucket\": 2}],"
+            + " \"latestByHost\": {\"node-1\": {\"name\": \"c\", \"value\": 0.5}},"
+            + " \"buckets\": [1, 2, 2]}";
+    MetricSeriesStub expected =
+        new MetricSeriesStub(
+            "requests",
+            Arrays.asList(
+                new MetricSampleStub("a", 1, 0, 0), null, new MetricSampleStub("b", 0, 0, 2)),
+            Collections.singletonMap("node-1", new MetricSampleStub("c", 0, 0.5, 0)),
+            new HashSet<>(Arrays.asList(1L, 2L)));
+    Assert.assertEquals(
+        expected, jsonMapping.read.valueFromJson(json, MetricSeriesStub.class).getOrNull());
+    Assert.assertEquals(
+        expected,
+        jsonMapping.read.valueFromReader(new StringReader(json), MetricSeriesStub.class).getOrNull());
+
+    String userJson =
+        "{\"ID\": 1, \"username\": \"jondoe\", \"email\": \"a\", \"groups\": [],"
+            + " \"contacts\": [{\"ID\": 2, \"username\": \"janedoe\", \"email\": \"b\","
+            + " \"groups\": [\"group 1\"], \"contacts\": []}]}";
+    User user = jsonMapping.read.valueFromJson(userJson, User.class).get();
+    Assert.assertEquals("janedoe", user.getContacts().get(0).getUsername());
+    Assert.assertEquals(2, user.getContacts().get(0).getID());
+
+    // A collection with an element that cannot be converted is left unset, not set with nulls.
+    String badBuckets = json.replace("[1, 2, 2]", "[\"a\", 1]");
+    MetricSeriesStub series = jsonMapping.read.valueFromJson(badBuckets, MetricSeriesStub.class).get();
+    Assert.assertNull(series.getBuckets());
+    Assert.assertEquals(expected.getSamples(), series.getSamples());
+    Assert.assertNull(
+        jsonMapping
+            .read
+            .valueFromReader(new StringReader(badBuckets), MetricSeriesStub.class)
+            .get()
+            .getBuckets());
+    Assert.assertNull(
+        jsonMapping
+            .read
+            .valueFromJson(userJson.replace("[\"group 1\"]", "[\"group 1\", 2]"), User.class)
+            .get()
+            .getContacts()
+            .get(0)
+            .getGroups());
+  }
+
+  @Test
+  public void testStreamingParserBindsStringsStrictly() {
+    JsonMapping streaming =
+        new JsonMapping(
+            true,
+            JsonMapping.AccessorStrategy.REFLECTION,
+            0,
+            JsonMapping.Parser.STREAMING);
+    ScimTenantConfigStub expected =
+        new ScimTenantConfigStub(
+            "1", "Azure", ApplicationSecretStub.create("a", "b"), ScimProviderKind.AZURE);
+    String json = jsonMapping.write.objectAsJsonString(expected).get();
+    Assert.assertEquals(
+        expected, streaming.read.valueFromJson(json, ScimTenantConfigStub.class).getOrNull());
+    Assert.assertEquals(
+        Arrays.asList(expected, null),
+        streaming
+            .read
+            .listFromJson("[" + json + ", null]", ScimTenantConfigStub.class)
+            .getOrNull());
+
+    // Escaped names are matched like plain ones.
+    String escaped = json.replace("\"tenantId\"", "\"tenant\\u0049d\"");
+    Assert.assertNotEquals(json, escaped);
+    Assert.assertEquals(
+        expected, streaming.read.valueFromJson(escaped, ScimTenantConfigStub.class).getOrNull());
+
+    Assert.assertEquals("b", jsonMapping.read.stringMapFromJson("{'a': 'b'}").get().get("a"));
+    Throwable lenient = streaming.read.stringMapFromJson("{'a': 'b'}").getCause();
+    Assert.assertEquals("JSON-VU2PYGKKZQ", ((JsonMappingException) lenient).errorCode);
+    Assert.assertTrue(
+        streaming.read.valueFromJson("{\"tenantId\": 01}", ScimTenantConfigStub.class).isFailure());
+  }
 }
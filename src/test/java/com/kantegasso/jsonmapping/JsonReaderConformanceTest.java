@@ -0,0 +1,94 @@
+package com.kantegasso.jsonmapping;
+
+import com.kantegasso.jsonmapping.JsonMapping.AccessorStrategy;
+import com.kantegasso.jsonmapping.JsonMapping.Parser;
+import io.vavr.control.Try;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Documents in src/test/resources/conformance starting with y_ must be read, and read to the same
+ * map as org.json reads them. Documents starting with n_ are not RFC 8259 JSON and must be rejected
+ * by the reader itself. Documents starting with o_ are valid JSON other than an object, so the
+ * reader must parse them, but they cannot be read as an object map.
+ */
+public class JsonReaderConformanceTest {
+
+  private final JsonMapping jsonMapping =
+      new JsonMapping(false, AccessorStrategy.REFLECTION, 0, Parser.STREAMING);
+
+  @Test
+  public void testAcceptsValidDocuments() throws Exception {
+    List<Path> documents = documents("y_");
+    Assert.assertFalse(documents.isEmpty());
+    for (Path document : documents) {
+      String json = read(document);
+      Try<Map<String, Object>> actual = jsonMapping.read.objectMapFromJson(json);
+      Assert.assertTrue(document.getFileName() + ": " + actual, actual.isSuccess());
+      Assert.assertEquals(
+          document.getFileName().toString(), new JSONObject(json).toMap(), actual.get());
+      Assert.assertEquals(document.getFileName().toString(), actual.get(), parse(json));
+    }
+  }
+
+  @Test
+  public void testParsesValidDocumentsOtherThanObjects() throws Exception {
+    List<Path> documents = documents("o_");
+    Assert.assertFalse(documents.isEmpty());
+    for (Path document : documents) {
+      String json = read(document);
+      Try<Object> parsed = Try.of(() -> parse(json));
+      Assert.assertTrue(document.getFileName() + ": " + parsed, parsed.isSuccess());
+      Assert.assertTrue(
+          document.getFileName().toString(), jsonMapping.read.objectMapFromJson(json).isFailure());
+    }
+  }
+
+  @Test
+  public void testRejectsInvalidDocuments() throws Exception {
+    List<Path> documents = documents("n_");
+    Assert.assertFalse(documents.isEmpty());
+    for (Path document : documents) {
+      String json = read(document);
+      Try<Map<String, Object>> actual = jsonMapping.read.objectMapFromJson(json);
+      Assert.assertTrue(document.getFileName().toString(), actual.isFailure());
+      Try<Object> parsed = Try.of(() -> parse(json));
+      Assert.assertTrue(document.getFileName() + ": " + parsed, parsed.isFailure());
+    }
+  }
+
+  /* Parses a whole document holding any value, without binding it to a type. */
+  private static Object parse(String json) throws IOException {
+    JsonReader reader = new JsonReader(json);
+    Object value = reader.nextValue();
+    if (reader.peek() != JsonReader.Token.END_DOCUMENT) {
+      throw reader.syntaxError("Expected end of document");
+    }
+    return value;
+  }
+
+  private static List<Path> documents(String prefix) throws IOException, URISyntaxException {
+    Path directory = Paths.get(JsonReaderConformanceTest.class.getResource("/conformance").toURI());
+    try (Stream<Path> paths = Files.list(directory)) {
+      return paths
+          .filter(path -> path.getFileName().toString().startsWith(prefix))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static String read(Path document) throws IOException {
+    return new String(Files.readAllBytes(document), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,21 @@
+package com.kantegasso.jsonmapping.stub;
+
+import com.kantegasso.jsonmapping.JsonMapping.JsonMapper;
+import com.kantegasso.jsonmapping.JsonMapping.JsonProperty;
+
+@JsonMapper
+public interface ApiTokenView {
+  @JsonProperty("alias")
+  String getAlias();
+
+  @JsonProperty("validFor")
+  long getValidFor();
+
+  default String describe() {
+    return "token " + getAlias();
+  }
+
+  default long validUntil(long createdAt) {
+    return createdAt + getValidFor();
+  }
+}
@@ -0,0 +1,60 @@
+package com.kantegasso.jsonmapping.stub;
+
+import com.kantegasso.jsonmapping.JsonMapping.JsonMapper;
+import com.kantegasso.jsonmapping.JsonMapping.JsonProperty;
+import java.util.Objects;
+
+@JsonMapper
+public class MetricSampleStub {
+  private final String name;
+  private final long count;
+  private final double value;
+  private final int bucket;
+
+  public MetricSampleStub(
+      @JsonProperty("name") String name,
+      @JsonProperty("count") long count,
+      @JsonProperty("value") double value,
+      @JsonProperty("bucket") int bucket) {
+    this.name = name;
+    this.count = count;
+    this.value = value;
+    this.bucket = bucket;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public double getValue() {
+    return value;
+  }
+
+  public int getBucket() {
+    return bucket;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    MetricSampleStub that = (MetricSampleStub) o;
+    return count == that.count
+        && Double.compare(that.value, value) == 0
+        && bucket == that.bucket
+        && Objects.equals(name, that.name);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(name, count, value, bucket);
+  }
+}
@@ -0,0 +1,63 @@
+package com.kantegasso.jsonmapping.stub;
+
+import com.kantegasso.jsonmapping.JsonMapping.JsonMapper;
+import com.kantegasso.jsonmapping.JsonMapping.JsonProperty;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+@JsonMapper
+public class MetricSeriesStub {
+  private final String name;
+  private final List<MetricSampleStub> samples;
+  private final Map<String, MetricSampleStub> latestByHost;
+  private final Set<Long> buckets;
+
+  public MetricSeriesStub(
+      @JsonProperty("name") String name,
+      @JsonProperty("samples") List<MetricSampleStub> samples,
+      @JsonProperty("latestByHost") Map<String, MetricSampleStub> latestByHost,
+      @JsonProperty("buckets") Set<Long> buckets) {
+    this.name = name;
+    this.samples = samples;
+    this.latestByHost = latestByHost;
+    this.buckets = buckets;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public List<MetricSampleStub> getSamples() {
+    return samples;
+  }
+
+  public Map<String, MetricSampleStub> getLatestByHost() {
+    return latestByHost;
+  }
+
+  public Set<Long> getBuckets() {
+    return buckets;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    MetricSeriesStub that = (MetricSeriesStub) o;
+    return Objects.equals(name, that.name)
+        && Objects.equals(samples, that.samples)
+        && Objects.equals(latestByHost, that.latestByHost)
+        && Objects.equals(buckets, that.buckets);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(name, samples, latestByHost, buckets);
+  }
+}
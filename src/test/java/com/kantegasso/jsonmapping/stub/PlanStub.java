@@ -0,0 +1,47 @@
+package com.kantegasso.jsonmapping.stub;
+
+import com.kantegasso.jsonmapping.JsonMapping.JsonMapper;
+
+@JsonMapper
+public class PlanStub {
+  private String name;
+  private Quota quota;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public Quota getQuota() {
+    return quota;
+  }
+
+  public void setQuota(Quota quota) {
+    this.quota = quota;
+  }
+
+  @JsonMapper
+  public static class Quota {
+    private Integer requests;
+    private Integer storage;
+
+    public Integer getRequests() {
+      return requests;
+    }
+
+    public void setRequests(Integer requests) {
+      this.requests = requests;
+    }
+
+    public Integer getStorage() {
+      return storage;
+    }
+
+    public void setStorage(Integer storage) {
+      this.storage = storage;
+    }
+  }
+}
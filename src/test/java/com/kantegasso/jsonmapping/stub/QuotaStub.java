@@ -0,0 +1,56 @@
+package com.kantegasso.jsonmapping.stub;
+
+import com.kantegasso.jsonmapping.JsonMapping.JsonMapper;
+import com.kantegasso.jsonmapping.JsonMapping.JsonProperty;
+import java.util.Objects;
+
+@JsonMapper
+public class QuotaStub {
+  private String name;
+  private Integer limit;
+  /** Not annotated on the getter, so only written when the quota is written with its fields. */
+  private String unit = "requests";
+
+  public QuotaStub() {}
+
+  public QuotaStub(@JsonProperty("name") String name, @JsonProperty("limit") Integer limit) {
+    if (limit != null && limit < 0) {
+      throw new IllegalArgumentException("The limit must not be negative");
+    }
+    this.name = name;
+    this.limit = limit;
+  }
+
+  @JsonProperty("name")
+  public String getName() {
+    return name;
+  }
+
+  @JsonProperty("limit")
+  public Integer getLimit() {
+    return limit;
+  }
+
+  public String getUnit() {
+    return unit;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    QuotaStub that = (QuotaStub) o;
+    return Objects.equals(name, that.name)
+        && Objects.equals(limit, that.limit)
+        && Objects.equals(unit, that.unit);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(name, limit, unit);
+  }
+}
@@ -0,0 +1,68 @@
+package com.kantegasso.jsonmapping;
+
+import com.kantegasso.jsonmapping.stub.ApiTokenObjectStub;
+import com.kantegasso.jsonmapping.stub.ApplicationSecretStub;
+import com.kantegasso.jsonmapping.stub.ScimTenantConfigStub;
+import com.kantegasso.jsonmapping.stub.ScimTenantConfigStub.ScimProviderKind;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** In src/test/jfr, compiled with MappingEvent when building on Java 11 or later. */
+public class FlightRecordingTest {
+  JsonMapping jsonMapping = new JsonMapping(true);
+
+  @Test
+  public void testFlightRecorderEventsAreEmittedWhileEnabled() throws IOException {
+    ScimTenantConfigStub config =
+        new ScimTenantConfigStub(
+            "1", "Azure", ApplicationSecretStub.create("a", "b"), ScimProviderKind.AZURE);
+    // Disabled by default, so this call is not recorded.
+    Path file = Files.createTempFile("json-mapping", ".jfr");
+    try (Recording recording = new Recording()) {
+      jsonMapping.write.objectAsJson(config).get();
+      recording.enable(MappingEvent.NAME);
+      recording.start();
+      byte[] bytes = jsonMapping.write.objectAsBytes(config).get();
+      jsonMapping
+          .read
+          .valueFromJson(new String(bytes, StandardCharsets.UTF_8), ScimTenantConfigStub.class)
+          .get();
+      jsonMapping.read.valueFromJson("{\"alias\": 1", ApiTokenObjectStub.class);
+      recording.stop();
+      recording.dump(file);
+
+      List<RecordedEvent> events =
+          RecordingFile.readAllEvents(file).stream()
+              .filter(event -> event.getEventType().getName().equals(MappingEvent.NAME))
+              .collect(Collectors.toList());
+      Assert.assertEquals(3, events.size());
+      RecordedEvent written = events.get(0);
+      Assert.assertEquals("WRITE", written.getString("operation"));
+      Assert.assertEquals(
+          ScimTenantConfigStub.class.getName(), written.getClass("mappedClass").getName());
+      Assert.assertEquals(bytes.length, written.getLong("size"));
+      Assert.assertEquals(1, written.getInt("recursionDepth"));
+      Assert.assertNotNull(written.getString("strategy"));
+      Assert.assertNull(written.getString("errorCode"));
+      RecordedEvent read = events.get(1);
+      Assert.assertEquals("READ", read.getString("operation"));
+      Assert.assertEquals(bytes.length, read.getLong("size"));
+      Assert.assertEquals(1, read.getInt("recursionDepth"));
+      Assert.assertEquals("CONSTRUCTOR", read.getString("strategy"));
+      Assert.assertFalse(read.getDuration().isNegative());
+      Assert.assertEquals(
+          "org.json.JSONException", events.get(2).getString("errorCode"));
+    } finally {
+      Files.delete(file);
+    }
+  }
+}